@@ -2,20 +2,28 @@ package org.droolsassert;
 
 import static org.droolsassert.util.AlphanumComparator.ALPHANUM_COMPARATOR;
 import static org.droolsassert.util.PerfStat.getDefaultAggregationPeriodMs;
+import static org.droolsassert.util.PerfStat.getDefaultSamplingRate;
 
 import java.util.Map.Entry;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.droolsassert.util.MatchStack;
+import org.droolsassert.util.MatchStack.Leap;
 import org.droolsassert.util.PerfStat;
 import org.droolsassert.util.Stat;
 import org.kie.api.definition.rule.Rule;
 import org.kie.api.event.rule.AfterMatchFiredEvent;
 import org.kie.api.event.rule.BeforeMatchFiredEvent;
 import org.kie.api.event.rule.DefaultAgendaEventListener;
+import org.kie.api.runtime.rule.Match;
+
+import com.google.common.collect.MapMaker;
 
 /**
  * Collect live performance statistic for rules (then block) as aggregated {@code Serializable} result.<br>
+ * Firing which consequence threw an exception is counted as failed leap when the session fires the next rule on the same thread.<br>
  * 
  * @see RulesChronoChartRecorder
  * @see PerfStat
@@ -23,9 +31,17 @@ import org.kie.api.event.rule.DefaultAgendaEventListener;
 public class RulesChronoAgendaEventListener extends DefaultAgendaEventListener {
 	
 	protected final ConcurrentHashMap<String, PerfStat> rulesStat = new ConcurrentHashMap<>();
+	/**
+	 * Rule statistic resolved once per rule instance (identity, weak keys)
+	 */
+	protected final ConcurrentMap<Rule, PerfStat> ruleStatCache = new MapMaker().weakKeys().makeMap();
+	private final ThreadLocal<MatchStack<PerfStat>> leaps = ThreadLocal.withInitial(MatchStack::new);
+	private final Leap<PerfStat> stopped = (ruleStat, startNs) -> afterLeap(ruleStat, ruleStat.stop(startNs));
+	private final Leap<PerfStat> failed = (ruleStat, startNs) -> ruleStat.fail();
 	protected final long aggregationPeriodMs;
 	protected String sessionPrefix;
 	protected boolean usePackageName;
+	protected int samplingRate = getDefaultSamplingRate();
 	
 	/**
 	 * Creates {@link RulesChronoAgendaEventListener} with default aggregation period
@@ -44,7 +60,8 @@ public class RulesChronoAgendaEventListener extends DefaultAgendaEventListener {
 	}
 	
 	/**
-	 * Include rule package name to qualify rule name, false by default
+	 * Include rule package name to qualify rule name, false by default<br>
+	 * Must be set before the first rule fires
 	 */
 	public RulesChronoAgendaEventListener withPackageName(boolean usePackageName) {
 		this.usePackageName = usePackageName;
@@ -61,6 +78,18 @@ public class RulesChronoAgendaEventListener extends DefaultAgendaEventListener {
 		return this;
 	}
 	
+	/**
+	 * Measure time of 1 in N firings per rule to cap the overhead for very hot rules, 1 (every firing) by default.<br>
+	 * Firings count stays exact, total time is extrapolated and statistic is flagged as sampled.
+	 * 
+	 * @see PerfStat#setSamplingRate(int)
+	 */
+	public RulesChronoAgendaEventListener withSamplingRate(int samplingRate) {
+		rulesStat.values().forEach(ruleStat -> ruleStat.setSamplingRate(samplingRate));
+		this.samplingRate = samplingRate;
+		return this;
+	}
+	
 	public TreeMap<String, Stat> getPerfStat() {
 		TreeMap<String, Stat> result = new TreeMap<>(ALPHANUM_COMPARATOR);
 		for (Entry<String, PerfStat> e : rulesStat.entrySet())
@@ -70,20 +99,24 @@ public class RulesChronoAgendaEventListener extends DefaultAgendaEventListener {
 	
 	@Override
 	public void beforeMatchFired(BeforeMatchFiredEvent event) {
-		String ruleName = uniqueRuleName(event.getMatch().getRule());
-		PerfStat ruleStat = rulesStat.get(ruleName);
+		Match match = event.getMatch();
+		PerfStat ruleStat = ruleStat(match.getRule());
+		leaps.get().push(match, event.getKieRuntime(), ruleStat, ruleStat.startNs(), failed);
+	}
+	
+	/**
+	 * Statistic for the rule, the name is built and looked up only once per rule instance
+	 */
+	protected final PerfStat ruleStat(Rule rule) {
+		PerfStat ruleStat = ruleStatCache.get(rule);
 		if (ruleStat == null) {
-			synchronized (rulesStat) {
-				if (ruleStat == null) {
-					ruleStat = new PerfStat(sessionPrefix, ruleName, aggregationPeriodMs);
-					rulesStat.put(ruleName, ruleStat);
-				}
-			}
+			ruleStat = rulesStat.computeIfAbsent(uniqueRuleName(rule), ruleName -> new PerfStat(sessionPrefix, ruleName, aggregationPeriodMs).setSamplingRate(samplingRate));
+			ruleStatCache.put(rule, ruleStat);
 		}
-		ruleStat.start();
+		return ruleStat;
 	}
 	
-	private String uniqueRuleName(Rule rule) {
+	protected String uniqueRuleName(Rule rule) {
 		StringBuilder sb = new StringBuilder();
 		if (usePackageName) {
 			sb.append(rule.getPackageName());
@@ -95,7 +128,13 @@ public class RulesChronoAgendaEventListener extends DefaultAgendaEventListener {
 	
 	@Override
 	public void afterMatchFired(AfterMatchFiredEvent event) {
-		rulesStat.get(uniqueRuleName(event.getMatch().getRule())).stop();
+		leaps.get().pop(event.getMatch(), stopped, failed);
+	}
+	
+	/**
+	 * Called after rule statistic was updated with the leap time, zero time is passed for the leaps which were not sampled
+	 */
+	protected void afterLeap(PerfStat ruleStat, long timeNs) {
 	}
 	
 	public void reset() {
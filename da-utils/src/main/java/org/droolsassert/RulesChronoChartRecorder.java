@@ -2,11 +2,14 @@ package org.droolsassert;
 
 import static java.lang.Double.MAX_VALUE;
 import static java.lang.Integer.parseInt;
+import static java.lang.System.currentTimeMillis;
 import static java.lang.System.getProperty;
+import static java.lang.System.nanoTime;
 import static java.util.Arrays.asList;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.droolsassert.RulesChronoChartRecorder.DataType.GlobalAvg;
 import static org.droolsassert.RulesChronoChartRecorder.DataType.GlobalMax;
 import static org.droolsassert.RulesChronoChartRecorder.DataType.GlobalMin;
@@ -20,24 +23,33 @@ import static org.droolsassert.util.AlphanumComparator.ALPHANUM_COMPARATOR;
 import static org.droolsassert.util.PerfStat.getDefaultAggregationPeriodMs;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map.Entry;
-import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import org.droolsassert.util.PerfStat;
 import org.droolsassert.util.Stat;
-import org.jfree.data.time.Second;
+import org.droolsassert.util.TimeSeriesBuffer.Aggregate;
+import org.droolsassert.util.TimeSeriesRollup;
 import org.jfree.data.time.TimeSeries;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Collect live performance statistic for rules (then block) as aggregated result and jfree chart {@code TimeSeries}.<br>
+ * Chart points are kept in fixed size primitive ring buffers, raw for the last hour, then 1-minute rollups for the last day and 1-hour rollups for the rest of retention period.
+ * Single rollup per rule keeps max, avg and min samples and serves all three charts.
+ * {@code TimeSeries} are built when requested from the best resolution covering the range, getters return snapshots which are not updated with the points recorded later.<br>
  * Suitable for prod environment and statistic delivery at the end of the flow or exposing via rest API etc.<br>
  * <br>
  * <i>Note:</i> This class creates thread pool executor with single background thread (for all instances) with core pool size 0 (thread will stop if no statistic is gathered).<br>
@@ -53,30 +65,60 @@ public class RulesChronoChartRecorder extends RulesChronoAgendaEventListener {
 	}
 	
 	enum ThresholdType {
-		Max, Avg, Min;
-		
-		private volatile double threshold;
-		private double localThreshold;
-		
-		private boolean check(double value) {
-			if (localThreshold == 0)
-				localThreshold = threshold;
-			return value > localThreshold;
-		}
+		Max, Avg, Min
 	}
 	
 	public static final int RETENTION_PERIOD_MIN = parseInt(getProperty("org.droolsassert.RulesChronoChartRecorder.retentionPeriodMin", "180"));
+	public static final int RAW_RETENTION_PERIOD_MIN = parseInt(getProperty("org.droolsassert.RulesChronoChartRecorder.rawRetentionPeriodMin", "60"));
+	public static final int MINUTE_RETENTION_PERIOD_MIN = parseInt(getProperty("org.droolsassert.RulesChronoChartRecorder.minuteRetentionPeriodMin", "1440"));
 	private static final ScheduledExecutorService EXECUTOR = newScheduledThreadPool(0, new ThreadFactoryBuilder().setNameFormat("RulesChronoChartRecorder%s").setDaemon(true).build());
+	/**
+	 * @deprecated chart points are kept in rollups, the map holds the series last returned by {@link #getRulesMaxChart()}
+	 */
+	@Deprecated
 	protected final ConcurrentHashMap<String, TimeSeries> rulesMaxChart = new ConcurrentHashMap<>();
+	/**
+	 * @deprecated chart points are kept in rollups, the map holds the series last returned by {@link #getRulesAvgChart()}
+	 */
+	@Deprecated
 	protected final ConcurrentHashMap<String, TimeSeries> rulesAvgChart = new ConcurrentHashMap<>();
+	/**
+	 * @deprecated chart points are kept in rollups, the map holds the series last returned by {@link #getRulesMinChart()}
+	 */
+	@Deprecated
 	protected final ConcurrentHashMap<String, TimeSeries> rulesMinChart = new ConcurrentHashMap<>();
+	/**
+	 * @deprecated chart points are kept in rollups, the series last returned by {@link #getGlobalMaxChart()}
+	 */
+	@Deprecated
 	protected TimeSeries globalMaxChart = new TimeSeries("globalMax");
+	/**
+	 * @deprecated chart points are kept in rollups, the series last returned by {@link #getGlobalAvgChart()}
+	 */
+	@Deprecated
 	protected TimeSeries globalAvgChart = new TimeSeries("globalAvg");
+	/**
+	 * @deprecated chart points are kept in rollups, the series last returned by {@link #getGlobalMinChart()}
+	 */
+	@Deprecated
 	protected TimeSeries globalMinChart = new TimeSeries("globalMin");
+	private final ConcurrentHashMap<String, TimeSeriesRollup> rulesRollups = new ConcurrentHashMap<>();
 	protected long retentionPeriodSec = MINUTES.toSeconds(RETENTION_PERIOD_MIN);
+	protected long rawRetentionPeriodSec = MINUTES.toSeconds(RAW_RETENTION_PERIOD_MIN);
+	protected long minuteRetentionPeriodSec = MINUTES.toSeconds(MINUTE_RETENTION_PERIOD_MIN);
+	private final TimeSeriesRollup globalRollup = newRollup();
 	private EnumSet<DataType> dataTypes = EnumSet.allOf(DataType.class);
-	private EnumSet<ThresholdType> thresholdTypes = EnumSet.noneOf(ThresholdType.class);
+	private volatile EnumMap<ThresholdType, Double> thresholds = new EnumMap<>(ThresholdType.class);
 	private volatile boolean recordingStarted;
+	private volatile boolean dormant;
+	/**
+	 * Leap time which may bring a rule past any threshold
+	 */
+	private volatile long wakeUpTimeNs = Long.MAX_VALUE;
+	/**
+	 * Rules not yet recorded with the leaps slower than {@link #wakeUpTimeNs}, by the start time of the last such leap
+	 */
+	private final ConcurrentHashMap<PerfStat, Long> wakeUpCandidates = new ConcurrentHashMap<>();
 	
 	/**
 	 * Creates {@link RulesChronoChartRecorder} with no session prefix and default aggregation period
@@ -100,12 +142,40 @@ public class RulesChronoChartRecorder extends RulesChronoAgendaEventListener {
 	 */
 	public RulesChronoChartRecorder withRetentionPeriod(long time, TimeUnit units) {
 		retentionPeriodSec = units.toSeconds(time);
-		globalMaxChart.setMaximumItemAge(retentionPeriodSec);
-		globalAvgChart.setMaximumItemAge(retentionPeriodSec);
-		globalMinChart.setMaximumItemAge(retentionPeriodSec);
+		configureRollups();
+		return this;
+	}
+	
+	/**
+	 * Retain raw (aggregation period) chart data for the last 1h by default, older data is kept as 1-minute rollups
+	 */
+	public RulesChronoChartRecorder withRawRetentionPeriod(long time, TimeUnit units) {
+		rawRetentionPeriodSec = units.toSeconds(time);
+		configureRollups();
 		return this;
 	}
 	
+	/**
+	 * Retain 1-minute rollups for the last 24h by default, older data is kept as 1-hour rollups
+	 */
+	public RulesChronoChartRecorder withMinuteRetentionPeriod(long time, TimeUnit units) {
+		minuteRetentionPeriodSec = units.toSeconds(time);
+		configureRollups();
+		return this;
+	}
+	
+	private TimeSeriesRollup newRollup() {
+		return new TimeSeriesRollup(SECONDS.toMillis(retentionPeriodSec), SECONDS.toMillis(rawRetentionPeriodSec), SECONDS.toMillis(minuteRetentionPeriodSec), aggregationPeriodMs);
+	}
+	
+	private void configureRollups() {
+		long retentionMs = SECONDS.toMillis(retentionPeriodSec);
+		long rawRetentionMs = SECONDS.toMillis(rawRetentionPeriodSec);
+		long minuteRetentionMs = SECONDS.toMillis(minuteRetentionPeriodSec);
+		Stream.concat(Stream.of(globalRollup), rulesRollups.values().stream())
+				.forEach(rollup -> rollup.configure(retentionMs, rawRetentionMs, minuteRetentionMs, aggregationPeriodMs));
+	}
+	
 	/**
 	 * Per rule and global (generalized) chart data is gathered by default
 	 */
@@ -118,26 +188,38 @@ public class RulesChronoChartRecorder extends RulesChronoAgendaEventListener {
 	 * Start gather chart data only if threshold value reached
 	 */
 	public RulesChronoChartRecorder withMaxThreshold(double threshold) {
-		Max.threshold = threshold;
-		thresholdTypes.add(Max);
-		return this;
+		return withThreshold(Max, threshold);
 	}
 	
 	/**
 	 * Start gather chart data only if threshold value reached
 	 */
 	public RulesChronoChartRecorder withAvgThreshold(double threshold) {
-		Avg.threshold = threshold;
-		thresholdTypes.add(Avg);
-		return this;
+		return withThreshold(Avg, threshold);
 	}
 	
 	/**
 	 * Start gather chart data only if threshold value reached
 	 */
 	public RulesChronoChartRecorder withMinThreshold(double threshold) {
-		Min.threshold = threshold;
-		thresholdTypes.add(Min);
+		return withThreshold(Min, threshold);
+	}
+	
+	private RulesChronoChartRecorder withThreshold(ThresholdType type, double threshold) {
+		EnumMap<ThresholdType, Double> copy = new EnumMap<>(thresholds);
+		copy.put(type, threshold);
+		thresholds = copy;
+		wakeUpTimeNs = (long) (copy.values().stream().mapToDouble(Double::doubleValue).min().getAsDouble() * 1_000_000);
+		return this;
+	}
+	
+	/**
+	 * Do not scan idle rules every aggregation period, only the rules already recorded and the ones which fired slower than the lowest threshold
+	 * since the previous period are checked.<br>
+	 * Has no effect without thresholds, all rules are recorded then.
+	 */
+	public RulesChronoChartRecorder withDormantMode() {
+		dormant = true;
 		return this;
 	}
 	
@@ -153,110 +235,207 @@ public class RulesChronoChartRecorder extends RulesChronoAgendaEventListener {
 		return this;
 	}
 	
+	@Override
+	protected void afterLeap(PerfStat ruleStat, long timeNs) {
+		if (timeNs > wakeUpTimeNs && dormant)
+			wakeUpCandidates.put(ruleStat, nanoTime() - timeNs);
+	}
+	
 	protected void recordTimeSeries() {
-		Second period = new Second();
+		long period = currentTimeMillis();
 		double globalMax = 0;
 		double globalTotal = 0;
 		double globalMin = MAX_VALUE;
 		
-		Set<Entry<String, PerfStat>> es = rulesStat.entrySet();
-		for (Entry<String, PerfStat> entry : es) {
-			String rule = entry.getKey();
-			Stat stat = entry.getValue().getStat();
-			if (!rulesMaxChart.containsKey(rule)) {
-				if (!thresholdTypes.isEmpty() && !(thresholdTypes.contains(Max) && Max.check(stat.getMaxTimeSampleMs())
-						|| thresholdTypes.contains(Avg) && Avg.check(stat.getAvgTimeSampleMs())
-						|| thresholdTypes.contains(Min) && Min.check(stat.getMinTimeSampleMs()))) {
+		for (String rule : rulesToCheck()) {
+			PerfStat perfStat = rulesStat.get(rule);
+			if (perfStat == null)
+				continue;
+			Stat stat = perfStat.getStat();
+			TimeSeriesRollup rollup = rulesRollups.get(rule);
+			if (rollup == null) {
+				if (!thresholdReached(stat))
 					continue;
-				}
-				initTimeSeries(rule, stat);
+				rollup = initTimeSeries(rule);
 				recordingStarted = true;
 			}
-			if (dataTypes.contains(RulesMax))
-				rulesMaxChart.get(rule).addOrUpdate(period, stat.getMaxTimeSampleMs());
-			if (dataTypes.contains(RulesAvg))
-				rulesAvgChart.get(rule).addOrUpdate(period, stat.getAvgTimeSampleMs());
-			if (dataTypes.contains(RulesMin))
-				rulesMinChart.get(rule).addOrUpdate(period, stat.getMinTimeSampleMs());
+			if (dataTypes.contains(RulesMax) || dataTypes.contains(RulesAvg) || dataTypes.contains(RulesMin))
+				rollup.add(period, stat.getMinTimeSampleMs(), stat.getAvgTimeSampleMs(), stat.getMaxTimeSampleMs());
 			
-			if (dataTypes.contains(GlobalMax) && globalMax < stat.getMaxTimeSampleMs())
+			if (globalMax < stat.getMaxTimeSampleMs())
 				globalMax = stat.getMaxTimeSampleMs();
-			if (dataTypes.contains(GlobalAvg))
-				globalTotal += stat.getAvgTimeSampleMs();
-			if (dataTypes.contains(GlobalMin) && globalMin > stat.getMinTimeSampleMs())
+			globalTotal += stat.getAvgTimeSampleMs();
+			if (globalMin > stat.getMinTimeSampleMs())
 				globalMin = stat.getMinTimeSampleMs();
 		}
 		
 		if (!recordingStarted)
 			return;
 		
-		if (dataTypes.contains(GlobalMax))
-			globalMaxChart.addOrUpdate(period, globalMax);
-		if (dataTypes.contains(GlobalAvg))
-			globalAvgChart.addOrUpdate(period, globalTotal / es.size());
-		if (dataTypes.contains(GlobalMin))
-			globalMinChart.addOrUpdate(period, globalMin);
-	}
-	
-	private void initTimeSeries(String rule, Stat stat) {
-		TimeSeries series = new TimeSeries(stat.getFullName());
-		series.setMaximumItemAge(retentionPeriodSec);
-		rulesMaxChart.put(rule, series);
-		
-		series = new TimeSeries(stat.getFullName());
-		series.setMaximumItemAge(retentionPeriodSec);
-		rulesAvgChart.put(rule, series);
+		if (dataTypes.contains(GlobalMax) || dataTypes.contains(GlobalAvg) || dataTypes.contains(GlobalMin))
+			globalRollup.add(period, globalMin, globalTotal / rulesStat.size(), globalMax);
+	}
+	
+	/**
+	 * All rules, or in dormant mode the rules already recorded and the wake up candidates.<br>
+	 * Candidate is kept until the sampled values including its last slow leap are published by the statistic rollover and checked,
+	 * the rollover happens only when the rule fires again after the aggregation period.
+	 */
+	private Collection<String> rulesToCheck() {
+		if (!dormant || thresholds.isEmpty())
+			return rulesStat.keySet();
+		if (wakeUpCandidates.isEmpty())
+			return rulesRollups.keySet();
 		
-		series = new TimeSeries(stat.getFullName());
-		series.setMaximumItemAge(retentionPeriodSec);
-		rulesMinChart.put(rule, series);
+		List<String> rules = new ArrayList<>(rulesRollups.keySet());
+		for (Iterator<Entry<PerfStat, Long>> it = wakeUpCandidates.entrySet().iterator(); it.hasNext();) {
+			Entry<PerfStat, Long> candidate = it.next();
+			PerfStat perfStat = candidate.getKey();
+			String rule = perfStat.getName();
+			if (rulesRollups.containsKey(rule)) {
+				it.remove();
+			} else if (thresholdReached(perfStat.getStat())) {
+				it.remove();
+				rules.add(rule);
+			} else if (perfStat.getLastAggregationTimeNs() - candidate.getValue() >= 0) {
+				wakeUpCandidates.remove(perfStat, candidate.getValue());
+			}
+		}
+		return rules;
+	}
+	
+	private boolean thresholdReached(Stat stat) {
+		EnumMap<ThresholdType, Double> thresholds = this.thresholds;
+		if (thresholds.isEmpty())
+			return true;
+		Double threshold = thresholds.get(Max);
+		if (threshold != null && stat.getMaxTimeSampleMs() > threshold)
+			return true;
+		threshold = thresholds.get(Avg);
+		if (threshold != null && stat.getAvgTimeSampleMs() > threshold)
+			return true;
+		threshold = thresholds.get(Min);
+		return threshold != null && stat.getMinTimeSampleMs() > threshold;
+	}
+	
+	private TimeSeriesRollup initTimeSeries(String rule) {
+		TimeSeriesRollup rollup = newRollup();
+		rulesRollups.put(rule, rollup);
+		return rollup;
 	}
 	
 	public TreeMap<String, TimeSeries> getRulesMaxChart() {
-		TreeMap<String, TimeSeries> sorted = new TreeMap<>(ALPHANUM_COMPARATOR);
-		sorted.putAll(rulesMaxChart);
+		TreeMap<String, TimeSeries> sorted = getRulesMaxChart(retentionPeriodSec, SECONDS);
+		snapshot(rulesMaxChart, sorted);
 		return sorted;
 	}
 	
+	/**
+	 * Chart of the last {@code range} in the best resolution retained for it
+	 */
+	public TreeMap<String, TimeSeries> getRulesMaxChart(long range, TimeUnit units) {
+		return toTimeSeries(units.toMillis(range), RulesMax, Aggregate.Max);
+	}
+	
 	public TreeMap<String, TimeSeries> getRulesAvgChart() {
-		TreeMap<String, TimeSeries> sorted = new TreeMap<>(ALPHANUM_COMPARATOR);
-		sorted.putAll(rulesAvgChart);
+		TreeMap<String, TimeSeries> sorted = getRulesAvgChart(retentionPeriodSec, SECONDS);
+		snapshot(rulesAvgChart, sorted);
 		return sorted;
 	}
 	
+	/**
+	 * Chart of the last {@code range} in the best resolution retained for it
+	 */
+	public TreeMap<String, TimeSeries> getRulesAvgChart(long range, TimeUnit units) {
+		return toTimeSeries(units.toMillis(range), RulesAvg, Aggregate.Avg);
+	}
+	
 	public TreeMap<String, TimeSeries> getRulesMinChart() {
-		TreeMap<String, TimeSeries> sorted = new TreeMap<>(ALPHANUM_COMPARATOR);
-		sorted.putAll(rulesMinChart);
+		TreeMap<String, TimeSeries> sorted = getRulesMinChart(retentionPeriodSec, SECONDS);
+		snapshot(rulesMinChart, sorted);
 		return sorted;
 	}
 	
+	/**
+	 * Chart of the last {@code range} in the best resolution retained for it
+	 */
+	public TreeMap<String, TimeSeries> getRulesMinChart(long range, TimeUnit units) {
+		return toTimeSeries(units.toMillis(range), RulesMin, Aggregate.Min);
+	}
+	
 	public TimeSeries getGlobalMaxChart() {
+		globalMaxChart = getGlobalMaxChart(retentionPeriodSec, SECONDS);
 		return globalMaxChart;
 	}
 	
+	/**
+	 * Chart of the last {@code range} in the best resolution retained for it
+	 */
+	public TimeSeries getGlobalMaxChart(long range, TimeUnit units) {
+		return toTimeSeries("globalMax", units.toMillis(range), GlobalMax, Aggregate.Max);
+	}
+	
 	public TimeSeries getGlobalAvgChart() {
+		globalAvgChart = getGlobalAvgChart(retentionPeriodSec, SECONDS);
 		return globalAvgChart;
 	}
 	
+	/**
+	 * Chart of the last {@code range} in the best resolution retained for it
+	 */
+	public TimeSeries getGlobalAvgChart(long range, TimeUnit units) {
+		return toTimeSeries("globalAvg", units.toMillis(range), GlobalAvg, Aggregate.Avg);
+	}
+	
 	public TimeSeries getGlobalMinChart() {
+		globalMinChart = getGlobalMinChart(retentionPeriodSec, SECONDS);
 		return globalMinChart;
 	}
 	
+	/**
+	 * Chart of the last {@code range} in the best resolution retained for it
+	 */
+	public TimeSeries getGlobalMinChart(long range, TimeUnit units) {
+		return toTimeSeries("globalMin", units.toMillis(range), GlobalMin, Aggregate.Min);
+	}
+	
+	private static void snapshot(ConcurrentHashMap<String, TimeSeries> deprecated, TreeMap<String, TimeSeries> sorted) {
+		deprecated.putAll(sorted);
+		deprecated.keySet().retainAll(sorted.keySet());
+	}
+	
+	/**
+	 * Chart series are built from the rollups on request, series of the data type not gathered are empty
+	 */
+	private TreeMap<String, TimeSeries> toTimeSeries(long rangeMs, DataType dataType, Aggregate aggregate) {
+		TreeMap<String, TimeSeries> sorted = new TreeMap<>(ALPHANUM_COMPARATOR);
+		for (Entry<String, TimeSeriesRollup> e : rulesRollups.entrySet()) {
+			PerfStat stat = rulesStat.get(e.getKey());
+			String name = stat == null ? e.getKey() : stat.getFullName();
+			sorted.put(e.getKey(), dataTypes.contains(dataType) ? e.getValue().toTimeSeries(name, rangeMs, aggregate) : new TimeSeries(name));
+		}
+		return sorted;
+	}
+	
+	private TimeSeries toTimeSeries(String name, long rangeMs, DataType dataType, Aggregate aggregate) {
+		return dataTypes.contains(dataType) ? globalRollup.toTimeSeries(name, rangeMs, aggregate) : new TimeSeries(name);
+	}
+	
 	public boolean isRecordingStarted() {
 		return recordingStarted;
 	}
 	
 	@Override
 	public void reset() {
+		rulesRollups.clear();
+		globalRollup.clear();
 		rulesMaxChart.clear();
 		rulesAvgChart.clear();
 		rulesMinChart.clear();
 		globalMaxChart = new TimeSeries("globalMax");
-		globalMaxChart.setMaximumItemAge(retentionPeriodSec);
 		globalAvgChart = new TimeSeries("globalAvg");
-		globalAvgChart.setMaximumItemAge(retentionPeriodSec);
 		globalMinChart = new TimeSeries("globalMin");
-		globalMinChart.setMaximumItemAge(retentionPeriodSec);
+		wakeUpCandidates.clear();
 		recordingStarted = false;
 		super.reset();
 	}
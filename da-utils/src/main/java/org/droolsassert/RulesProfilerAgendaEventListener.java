@@ -0,0 +1,228 @@
+package org.droolsassert;
+
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+import static org.droolsassert.util.AlphanumComparator.ALPHANUM_COMPARATOR;
+import static org.droolsassert.util.PerfStat.getDefaultAggregationPeriodMs;
+
+import static java.lang.management.ManagementFactory.getThreadMXBean;
+import static java.util.Arrays.copyOf;
+
+import java.lang.management.ThreadMXBean;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.droolsassert.util.AllocationStat;
+import org.droolsassert.util.AllocationStatImpl;
+import org.droolsassert.util.MatchStack;
+import org.droolsassert.util.MatchStack.Leap;
+import org.droolsassert.util.PerfStat;
+import org.droolsassert.util.Stat;
+import org.kie.api.definition.rule.Rule;
+import org.kie.api.event.rule.AfterMatchFiredEvent;
+import org.kie.api.event.rule.BeforeMatchFiredEvent;
+import org.kie.api.runtime.rule.Match;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * Collect thread CPU time and allocated bytes of rules (then block) in addition to wall-clock time.<br>
+ * CPU time is gathered under {@code <session prefix>.cpu} type, so it is exposed via the same {@link PerfStat} registry and MBeans as the time statistic.<br>
+ * Allocated bytes are gathered under {@code <session prefix>.allocation} type into {@link AllocationStat}, which is not a time statistic and is exposed by its own MBeans.<br>
+ * Measurements are taken within wall-clock ones, so overhead of the rules chrono listener is not attributed to the rule.<br>
+ * Measurements not supported or disabled in the JVM are skipped, see {@link #RulesProfilerAgendaEventListener(long, boolean)} to enable them.
+ * 
+ * <pre>
+ * drools.setRulesChrono(new RulesProfilerAgendaEventListener());
+ * </pre>
+ * 
+ * @see ThreadMXBean#getCurrentThreadCpuTime()
+ * @see com.sun.management.ThreadMXBean#getCurrentThreadAllocatedBytes()
+ */
+public class RulesProfilerAgendaEventListener extends RulesChronoAgendaEventListener {
+	
+	private static final ThreadMXBean threadMXBean = getThreadMXBean();
+	
+	protected final ConcurrentHashMap<String, PerfStat> rulesCpuStat = new ConcurrentHashMap<>();
+	protected final ConcurrentHashMap<String, AllocationStatImpl> rulesAllocationStat = new ConcurrentHashMap<>();
+	private final ConcurrentMap<Rule, RuleProfile> ruleProfileCache = new MapMaker().weakKeys().makeMap();
+	private final ThreadLocal<Profiles> profiles = ThreadLocal.withInitial(Profiles::new);
+	private final Leap<RuleProfile> failed = (profile, cpuTimeStart) -> profile.cpuStat.fail();
+	private final boolean cpuTimeEnabled;
+	private final boolean allocatedBytesEnabled;
+	
+	/**
+	 * Creates {@link RulesProfilerAgendaEventListener} with default aggregation period
+	 */
+	public RulesProfilerAgendaEventListener() {
+		this(getDefaultAggregationPeriodMs());
+	}
+	
+	/**
+	 * Creates {@link RulesProfilerAgendaEventListener} with aggregation period
+	 * 
+	 * @param aggregationPeriodMs
+	 */
+	public RulesProfilerAgendaEventListener(long aggregationPeriodMs) {
+		this(aggregationPeriodMs, false);
+	}
+	
+	/**
+	 * Creates {@link RulesProfilerAgendaEventListener} with aggregation period
+	 * 
+	 * @param aggregationPeriodMs
+	 * @param enableMeasurements
+	 *            switch thread CPU time and allocated memory measurement on if supported but disabled, this affects the whole JVM
+	 */
+	public RulesProfilerAgendaEventListener(long aggregationPeriodMs, boolean enableMeasurements) {
+		super(aggregationPeriodMs);
+		cpuTimeEnabled = cpuTimeEnabled(enableMeasurements);
+		allocatedBytesEnabled = allocatedBytesEnabled(enableMeasurements);
+	}
+	
+	public boolean isCpuTimeEnabled() {
+		return cpuTimeEnabled;
+	}
+	
+	public boolean isAllocatedBytesEnabled() {
+		return allocatedBytesEnabled;
+	}
+	
+	public TreeMap<String, Stat> getCpuStat() {
+		TreeMap<String, Stat> result = new TreeMap<>(ALPHANUM_COMPARATOR);
+		for (Entry<String, PerfStat> e : rulesCpuStat.entrySet())
+			result.put(e.getKey(), e.getValue().getStat());
+		return result;
+	}
+	
+	public TreeMap<String, AllocationStat> getAllocationStat() {
+		TreeMap<String, AllocationStat> result = new TreeMap<>(ALPHANUM_COMPARATOR);
+		result.putAll(rulesAllocationStat);
+		return result;
+	}
+	
+	@Override
+	public void beforeMatchFired(BeforeMatchFiredEvent event) {
+		super.beforeMatchFired(event);
+		Match match = event.getMatch();
+		RuleProfile ruleProfile = ruleProfile(match.getRule());
+		Profiles threadProfiles = profiles.get();
+		long allocatedBytesStart = currentThreadAllocatedBytes();
+		threadProfiles.stack.push(match, event.getKieRuntime(), ruleProfile, currentThreadCpuTime(), failed);
+		threadProfiles.setAllocatedBytesStart(allocatedBytesStart);
+	}
+	
+	@Override
+	public void afterMatchFired(AfterMatchFiredEvent event) {
+		Profiles threadProfiles = profiles.get();
+		threadProfiles.cpuTimeEnd = currentThreadCpuTime();
+		threadProfiles.allocatedBytesEnd = currentThreadAllocatedBytes();
+		threadProfiles.stack.pop(event.getMatch(), threadProfiles, failed);
+		super.afterMatchFired(event);
+	}
+	
+	@Override
+	public void reset() {
+		super.reset();
+		rulesCpuStat.values().forEach(PerfStat::reset);
+		rulesAllocationStat.values().forEach(AllocationStat::reset);
+	}
+	
+	/**
+	 * CPU time and allocation statistic for the rule, resolved once per rule instance
+	 */
+	private RuleProfile ruleProfile(Rule rule) {
+		RuleProfile ruleProfile = ruleProfileCache.get(rule);
+		if (ruleProfile == null) {
+			String ruleName = uniqueRuleName(rule);
+			ruleProfile = new RuleProfile(
+					rulesCpuStat.computeIfAbsent(ruleName, name -> new PerfStat(profileType("cpu"), name, aggregationPeriodMs)),
+					rulesAllocationStat.computeIfAbsent(ruleName, name -> AllocationStatImpl.allocationStat(profileType("allocation"), name)));
+			ruleProfileCache.put(rule, ruleProfile);
+		}
+		return ruleProfile;
+	}
+	
+	private String profileType(String type) {
+		return isEmpty(sessionPrefix) ? type : sessionPrefix + "." + type;
+	}
+	
+	private long currentThreadCpuTime() {
+		return cpuTimeEnabled ? threadMXBean.getCurrentThreadCpuTime() : -1;
+	}
+	
+	private long currentThreadAllocatedBytes() {
+		return allocatedBytesEnabled ? ((com.sun.management.ThreadMXBean) threadMXBean).getCurrentThreadAllocatedBytes() : -1;
+	}
+	
+	private static boolean cpuTimeEnabled(boolean enable) {
+		try {
+			if (!threadMXBean.isCurrentThreadCpuTimeSupported())
+				return false;
+			if (enable && !threadMXBean.isThreadCpuTimeEnabled())
+				threadMXBean.setThreadCpuTimeEnabled(true);
+			return threadMXBean.isThreadCpuTimeEnabled();
+		} catch (UnsupportedOperationException | SecurityException e) {
+			return false;
+		}
+	}
+	
+	private static boolean allocatedBytesEnabled(boolean enable) {
+		if (!(threadMXBean instanceof com.sun.management.ThreadMXBean))
+			return false;
+		com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+		try {
+			if (!sunThreadMXBean.isThreadAllocatedMemorySupported())
+				return false;
+			if (enable && !sunThreadMXBean.isThreadAllocatedMemoryEnabled())
+				sunThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+			return sunThreadMXBean.isThreadAllocatedMemoryEnabled();
+		} catch (UnsupportedOperationException | SecurityException e) {
+			return false;
+		}
+	}
+	
+	private static final class RuleProfile {
+		private final PerfStat cpuStat;
+		private final AllocationStatImpl allocationStat;
+		
+		private RuleProfile(PerfStat cpuStat, AllocationStatImpl allocationStat) {
+			this.cpuStat = cpuStat;
+			this.allocationStat = allocationStat;
+		}
+	}
+	
+	/**
+	 * Rules being fired by the current thread and the measurements taken when the rule completed.<br>
+	 * Stack frame keeps the rule profile and CPU time start, allocated bytes start is kept by frame depth, so firing a rule does not allocate.
+	 */
+	private static final class Profiles implements Leap<RuleProfile> {
+		private final MatchStack<RuleProfile> stack = new MatchStack<>();
+		private long[] allocatedBytesStarts = new long[4];
+		private long cpuTimeEnd;
+		private long allocatedBytesEnd;
+		
+		/**
+		 * Allocated bytes start of the frame just pushed
+		 */
+		private void setAllocatedBytesStart(long allocatedBytesStart) {
+			int frame = stack.depth() - 1;
+			if (frame == allocatedBytesStarts.length)
+				allocatedBytesStarts = copyOf(allocatedBytesStarts, frame * 2);
+			allocatedBytesStarts[frame] = allocatedBytesStart;
+		}
+		
+		/**
+		 * Stack depth is the frame being popped while its leap is accepted
+		 */
+		@Override
+		public void accept(RuleProfile profile, long cpuTimeStart) {
+			long allocatedBytesStart = allocatedBytesStarts[stack.depth()];
+			if (cpuTimeEnd >= 0 && cpuTimeStart >= 0)
+				profile.cpuStat.record(cpuTimeEnd - cpuTimeStart);
+			if (allocatedBytesEnd >= 0 && allocatedBytesStart >= 0)
+				profile.allocationStat.record(allocatedBytesEnd - allocatedBytesStart);
+		}
+	}
+}
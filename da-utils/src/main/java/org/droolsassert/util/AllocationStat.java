@@ -0,0 +1,26 @@
+package org.droolsassert.util;
+
+import java.io.Serializable;
+
+/**
+ * Bytes allocated per leap, kept apart from {@link Stat} so time getters, MBeans and exporters never see bytes as time.
+ * 
+ * @see AllocationStatImpl#allocationStat(String, String)
+ */
+public interface AllocationStat extends Serializable {
+	String getType();
+	
+	String getName();
+	
+	long getLeapsCount();
+	
+	long getTotalBytes();
+	
+	long getMinBytes();
+	
+	long getAvgBytes();
+	
+	long getMaxBytes();
+	
+	void reset();
+}
@@ -0,0 +1,84 @@
+package org.droolsassert.util;
+
+import static javax.management.openmbean.SimpleType.LONG;
+import static javax.management.openmbean.SimpleType.STRING;
+import static org.droolsassert.util.AllocationStatImpl.statsOfType;
+
+import java.util.Map;
+
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+/**
+ * Aggregate view over the live allocation statistic of the type, names added later are picked up on the next call
+ */
+final class AllocationStatAggregateImpl implements AllocationStatAggregate {
+	
+	private static final String[] ITEMS = { "name", "leapsCount", "minBytes", "avgBytes", "maxBytes", "totalBytes" };
+	private static final OpenType<?>[] ITEM_TYPES = { STRING, LONG, LONG, LONG, LONG, LONG };
+	private static final CompositeType STAT_TYPE;
+	private static final TabularType STATS_TYPE;
+	static {
+		try {
+			STAT_TYPE = new CompositeType("AllocationStat", "Allocated bytes statistic", ITEMS, ITEMS, ITEM_TYPES);
+			STATS_TYPE = new TabularType("AllocationStats", "Allocated bytes statistic by name", STAT_TYPE, new String[] { "name" });
+		} catch (OpenDataException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+	
+	private final String type;
+	
+	AllocationStatAggregateImpl(String type) {
+		this.type = type;
+	}
+	
+	@Override
+	public String getType() {
+		return type;
+	}
+	
+	@Override
+	public int getSize() {
+		Map<String, AllocationStatImpl> stats = statsOfType(type);
+		return stats == null ? 0 : stats.size();
+	}
+	
+	@Override
+	public TabularData getStats() {
+		TabularDataSupport result = new TabularDataSupport(STATS_TYPE);
+		Map<String, AllocationStatImpl> stats = statsOfType(type);
+		if (stats != null)
+			stats.values().forEach(stat -> result.put(toCompositeData(stat)));
+		return result;
+	}
+	
+	@Override
+	public CompositeData getStat(String name) {
+		Map<String, AllocationStatImpl> stats = statsOfType(type);
+		AllocationStatImpl stat = stats == null ? null : stats.get(name);
+		return stat == null ? null : toCompositeData(stat);
+	}
+	
+	@Override
+	public void reset() {
+		Map<String, AllocationStatImpl> stats = statsOfType(type);
+		if (stats != null)
+			stats.values().forEach(AllocationStatImpl::reset);
+	}
+	
+	static CompositeData toCompositeData(AllocationStat stat) {
+		Object[] values = { stat.getName(), stat.getLeapsCount(), stat.getMinBytes(), stat.getAvgBytes(), stat.getMaxBytes(), stat.getTotalBytes() };
+		try {
+			return new CompositeDataSupport(STAT_TYPE, ITEMS, values);
+		} catch (OpenDataException e) {
+			throw new RuntimeException("Cannot create composite data for " + stat.getType() + "." + stat.getName(), e);
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package org.droolsassert.util;
+
+import static java.lang.String.format;
+import static org.droolsassert.util.JmxUtils.registerMBean;
+import static org.droolsassert.util.PerfStat.isMBeanPerName;
+import static org.droolsassert.util.PerfStat.objName;
+import static org.droolsassert.util.PerfStat.quoteIfNeeded;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bytes allocated per leap, recorded by many threads without locking.<br>
+ * Statistic is shared by type and name and exposed via MBean server the same way as {@link PerfStat}, by {@link AllocationStatAggregate} per type
+ * ({@code <domain>:type=<type>,scope=all}) and by MBean per name unless {@link PerfStat#setMBeanPerName(boolean)} is switched off.
+ */
+public final class AllocationStatImpl implements AllocationStat {
+	private static final long serialVersionUID = -3867413309436591652L;
+	
+	private static final ConcurrentHashMap<String, Map<String, AllocationStatImpl>> stats = new ConcurrentHashMap<>();
+	
+	private final String type;
+	private final String name;
+	private final LongAdder leapsCount = new LongAdder();
+	private final LongAdder totalBytes = new LongAdder();
+	private final LongAccumulator minBytes = new LongAccumulator(Math::min, Long.MAX_VALUE);
+	private final LongAccumulator maxBytes = new LongAccumulator(Math::max, 0);
+	
+	public AllocationStatImpl(String type, String name) {
+		this.type = type;
+		this.name = name;
+	}
+	
+	/**
+	 * Shared statistic for the type and name, registered with MBean server on first use
+	 */
+	public static AllocationStatImpl allocationStat(String type, String name) {
+		Map<String, AllocationStatImpl> statsByName = stats.get(type);
+		AllocationStatImpl stat = statsByName == null ? null : statsByName.get(name);
+		if (stat != null)
+			return stat;
+		synchronized (stats) {
+			statsByName = stats.get(type);
+			if (statsByName == null) {
+				statsByName = new ConcurrentHashMap<>();
+				stats.put(type, statsByName);
+				registerMBean(objName(type, "scope=all"), new AllocationStatAggregateImpl(type), AllocationStatAggregate.class);
+			}
+			stat = statsByName.get(name);
+			if (stat == null) {
+				stat = new AllocationStatImpl(type, name);
+				statsByName.put(name, stat);
+				if (isMBeanPerName())
+					registerMBean(objName(type, "name=" + quoteIfNeeded(name)), stat, AllocationStat.class);
+			}
+			return stat;
+		}
+	}
+	
+	static Map<String, AllocationStatImpl> statsOfType(String type) {
+		return stats.get(type);
+	}
+	
+	public void record(long bytes) {
+		totalBytes.add(bytes);
+		minBytes.accumulate(bytes);
+		maxBytes.accumulate(bytes);
+		leapsCount.increment();
+	}
+	
+	@Override
+	public String getType() {
+		return type;
+	}
+	
+	@Override
+	public String getName() {
+		return name;
+	}
+	
+	@Override
+	public long getLeapsCount() {
+		return leapsCount.sum();
+	}
+	
+	@Override
+	public long getTotalBytes() {
+		return totalBytes.sum();
+	}
+	
+	@Override
+	public long getMinBytes() {
+		long min = minBytes.get();
+		return min == Long.MAX_VALUE ? 0 : min;
+	}
+	
+	@Override
+	public long getMaxBytes() {
+		return maxBytes.get();
+	}
+	
+	@Override
+	public long getAvgBytes() {
+		long count = getLeapsCount();
+		return count == 0 ? 0 : getTotalBytes() / count;
+	}
+	
+	@Override
+	public void reset() {
+		leapsCount.reset();
+		totalBytes.reset();
+		minBytes.reset();
+		maxBytes.reset();
+	}
+	
+	@Override
+	public String toString() {
+		return format("%,d %,d %,d", getMinBytes(), getAvgBytes(), getMaxBytes());
+	}
+}
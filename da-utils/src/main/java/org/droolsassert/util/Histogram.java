@@ -0,0 +1,129 @@
+package org.droolsassert.util;
+
+import static java.lang.Long.numberOfLeadingZeros;
+import static java.lang.Math.ceil;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed memory log-linear histogram of non-negative values (HdrHistogram style).<br>
+ * Each power of two range is split into {@value #SUB_BUCKETS} linear buckets, so the value reported for percentile is within ~3% of the recorded one.<br>
+ * Bucket ranges are allocated on first use, at most {@value #RANGES} ranges of {@value #SUB_BUCKETS} counters.<br>
+ * Recording is lock-free and can be done by many threads.
+ */
+public final class Histogram implements Serializable {
+	private static final long serialVersionUID = -2476372925339861375L;
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int RANGES = 64 - SUB_BUCKET_BITS + 1;
+	
+	private final AtomicReferenceArray<AtomicLongArray> ranges = new AtomicReferenceArray<>(RANGES);
+	
+	public void record(long value) {
+		value = max(0, value);
+		int range = range(value);
+		AtomicLongArray counts = ranges.get(range);
+		if (counts == null) {
+			ranges.compareAndSet(range, null, new AtomicLongArray(SUB_BUCKETS));
+			counts = ranges.get(range);
+		}
+		counts.incrementAndGet(subBucket(value, range));
+	}
+	
+	public long getCount() {
+		long count = 0;
+		for (int range = 0; range < RANGES; range++) {
+			AtomicLongArray counts = ranges.get(range);
+			for (int i = 0; counts != null && i < SUB_BUCKETS; i++)
+				count += counts.get(i);
+		}
+		return count;
+	}
+	
+	/**
+	 * Value at percentile (0 - 100), zero if nothing recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long count = getCount();
+		if (count == 0)
+			return 0;
+		long rank = max(1, (long) ceil(min(100, max(0, percentile)) / 100 * count));
+		long seen = 0;
+		for (int range = 0; range < RANGES; range++) {
+			AtomicLongArray counts = ranges.get(range);
+			for (int i = 0; counts != null && i < SUB_BUCKETS; i++) {
+				seen += counts.get(i);
+				if (seen >= rank)
+					return median(range, i);
+			}
+		}
+		return 0;
+	}
+	
+	/**
+	 * Add counts recorded by other histogram
+	 */
+	public void add(Histogram other) {
+		for (int range = 0; range < RANGES; range++) {
+			AtomicLongArray counts = other.ranges.get(range);
+			for (int i = 0; counts != null && i < SUB_BUCKETS; i++) {
+				long count = counts.get(i);
+				if (count == 0)
+					continue;
+				if (ranges.get(range) == null)
+					ranges.compareAndSet(range, null, new AtomicLongArray(SUB_BUCKETS));
+				ranges.get(range).addAndGet(i, count);
+			}
+		}
+	}
+	
+	/**
+	 * Count of values recorded into the range, see {@link #getRangeUpperBound(int)}
+	 */
+	long getRangeCount(int range) {
+		AtomicLongArray counts = ranges.get(range);
+		long count = 0;
+		for (int i = 0; counts != null && i < SUB_BUCKETS; i++)
+			count += counts.get(i);
+		return count;
+	}
+	
+	/**
+	 * Highest value (inclusive) which falls into the range
+	 */
+	static long getRangeUpperBound(int range) {
+		return range == RANGES - 1 ? Long.MAX_VALUE : ((long) SUB_BUCKETS << range) - 1;
+	}
+	
+	static int getRanges() {
+		return RANGES;
+	}
+	
+	public void reset() {
+		for (int range = 0; range < RANGES; range++)
+			ranges.set(range, null);
+	}
+	
+	/**
+	 * Values below {@value #SUB_BUCKETS} have exact buckets in the range 0, every next range covers the next power of two
+	 */
+	private static int range(long value) {
+		return max(0, 64 - numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+	}
+	
+	private static int subBucket(long value, int range) {
+		return range == 0 ? (int) value : (int) (value >>> (range - 1)) & (SUB_BUCKETS - 1);
+	}
+	
+	private static long median(int range, int subBucket) {
+		if (range == 0)
+			return subBucket;
+		long lowest = (long) (SUB_BUCKETS + subBucket) << (range - 1);
+		long width = 1L << (range - 1);
+		return lowest + width / 2;
+	}
+}
@@ -0,0 +1,101 @@
+package org.droolsassert.util;
+
+import static java.util.Arrays.copyOf;
+
+import org.kie.api.runtime.rule.Match;
+
+/**
+ * Matches being fired by the current thread with the state started in {@code beforeMatchFired}, supports rules fired from within consequence.<br>
+ * Drools does not call {@code afterMatchFired} when consequence throws an exception, entries left this way are discarded (passed to {@code discarded} callback)
+ * when outer match completes or the same session fires the next match, since consequence of the session can not be running at that point.<br>
+ * Not thread safe, keep one instance per thread.
+ * 
+ * @param <T>
+ *            state of the match
+ */
+public final class MatchStack<T> {
+	
+	@FunctionalInterface
+	public interface Leap<T> {
+		void accept(T state, long start);
+	}
+	
+	private Match[] matches = new Match[4];
+	private Object[] sessions = new Object[4];
+	private Object[] states = new Object[4];
+	private long[] starts = new long[4];
+	private int depth;
+	
+	/**
+	 * Discard the entries left by the consequences of the session, then push the match
+	 */
+	public void push(Match match, Object session, T state, long start, Leap<? super T> discarded) {
+		for (int i = 0; i < depth; i++) {
+			if (sessions[i] == session) {
+				discard(i, discarded);
+				break;
+			}
+		}
+		if (depth == matches.length) {
+			matches = copyOf(matches, depth * 2);
+			sessions = copyOf(sessions, depth * 2);
+			states = copyOf(states, depth * 2);
+			starts = copyOf(starts, depth * 2);
+		}
+		matches[depth] = match;
+		sessions[depth] = session;
+		states[depth] = state;
+		starts[depth] = start;
+		depth++;
+	}
+	
+	/**
+	 * Pop the match passing its state to {@code stopped}, entries above it are discarded.<br>
+	 * Unknown match (pushed before the listener was added) is ignored.
+	 */
+	public void pop(Match match, Leap<? super T> stopped, Leap<? super T> discarded) {
+		for (int i = depth - 1; i >= 0; i--) {
+			if (matches[i] == match) {
+				discard(i + 1, discarded);
+				T state = state(i);
+				long start = starts[i];
+				clear(i);
+				depth = i;
+				stopped.accept(state, start);
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Discard all entries, use when thread is known to be outside of any consequence (before fireAllRules etc.)
+	 */
+	public void clear(Leap<? super T> discarded) {
+		discard(0, discarded);
+	}
+	
+	public int depth() {
+		return depth;
+	}
+	
+	private void discard(int from, Leap<? super T> discarded) {
+		for (int i = depth - 1; i >= from; i--) {
+			T state = state(i);
+			long start = starts[i];
+			clear(i);
+			depth = i;
+			discarded.accept(state, start);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private T state(int i) {
+		return (T) states[i];
+	}
+	
+	private void clear(int i) {
+		matches[i] = null;
+		sessions[i] = null;
+		states[i] = null;
+	}
+}
@@ -0,0 +1,244 @@
+package org.droolsassert.util;
+
+import static java.lang.System.err;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createTempFile;
+import static java.nio.file.Files.move;
+import static java.nio.file.Files.write;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.droolsassert.util.PerfStat.allStats;
+import static org.droolsassert.util.PerfStat.getDefaultAggregationPeriodMs;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+
+import com.google.common.collect.MapMaker;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Export {@link PerfStat} statistic of this VM in OpenMetrics text format, so it can be scraped by Prometheus compatible collectors without JMX.<br>
+ * Statistic is exposed by the embedded http server ({@code /metrics}) or rewritten into the file every aggregation period (node exporter textfile collector).<br>
+ * Leaps, failed leaps, peers, total time and time histogram (power of two buckets in seconds) are exported for every type and name.
+ * Labels are built once per statistic and the output buffer is reused, so scrape does not allocate per name.
+ * 
+ * <pre>
+ * OpenMetricsExporter exporter = new OpenMetricsExporter().startHttpServer(new InetSocketAddress(9404));
+ * ...
+ * exporter.close();
+ * </pre>
+ */
+public class OpenMetricsExporter implements AutoCloseable {
+	
+	public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+	/**
+	 * Histogram buckets below ~1 microsecond are folded into the first exported one
+	 */
+	private static final int MIN_EXPORTED_RANGE = 5;
+	private static final long NANOS_PER_SECOND = 1_000_000_000;
+	private static final String[] BUCKET_BOUNDS = new String[Histogram.getRanges()];
+	static {
+		for (int range = 0; range < BUCKET_BOUNDS.length - 1; range++)
+			BUCKET_BOUNDS[range] = seconds(new StringBuilder(",le=\""), Histogram.getRangeUpperBound(range)).append("\"} ").toString();
+		BUCKET_BOUNDS[BUCKET_BOUNDS.length - 1] = ",le=\"+Inf\"} ";
+	}
+	
+	private final String prefix;
+	private final Map<StatImpl, String> labels = new MapMaker().weakKeys().makeMap();
+	private final StringBuilder buffer = new StringBuilder(64 * 1024);
+	private ScheduledExecutorService executor;
+	private HttpServer httpServer;
+	private volatile boolean exportFailing;
+	
+	/**
+	 * Creates {@link OpenMetricsExporter} with {@code perfstat} metric names prefix
+	 */
+	public OpenMetricsExporter() {
+		this("perfstat");
+	}
+	
+	public OpenMetricsExporter(String prefix) {
+		this.prefix = prefix;
+	}
+	
+	/**
+	 * Serve statistic on {@code /metrics} path
+	 */
+	public synchronized OpenMetricsExporter startHttpServer(InetSocketAddress address) {
+		try {
+			httpServer = HttpServer.create(address, 0);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot start metrics http server on " + address, e);
+		}
+		httpServer.createContext("/metrics", this::handle);
+		httpServer.start();
+		return this;
+	}
+	
+	/**
+	 * Rewrite the file with statistic every default aggregation period
+	 */
+	public OpenMetricsExporter startFileExport(Path file) {
+		return startFileExport(file, getDefaultAggregationPeriodMs());
+	}
+	
+	/**
+	 * Rewrite the file with statistic every period, the file is replaced atomically so readers never see partial content
+	 */
+	public synchronized OpenMetricsExporter startFileExport(Path file, long periodMs) {
+		if (executor == null)
+			executor = newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("OpenMetricsExporter%s").setDaemon(true).build());
+		executor.scheduleAtFixedRate(() -> exportLogged(file), 0, periodMs, MILLISECONDS);
+		return this;
+	}
+	
+	/**
+	 * Write statistic into the file atomically
+	 */
+	public void export(Path file) {
+		try {
+			Path tmp = createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+			write(tmp, scrape());
+			move(tmp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot export metrics to " + file, e);
+		}
+	}
+	
+	/**
+	 * Failure is logged rather than thrown, so it does not cancel subsequent exports, repeated failures are logged once
+	 */
+	private void exportLogged(Path file) {
+		try {
+			export(file);
+			exportFailing = false;
+		} catch (RuntimeException e) {
+			if (!exportFailing)
+				err.println(e.getMessage() + ": " + (e.getCause() != null ? e.getCause() : e));
+			exportFailing = true;
+		}
+	}
+	
+	/**
+	 * Statistic in OpenMetrics text format
+	 */
+	public synchronized byte[] scrape() {
+		buffer.setLength(0);
+		family("leaps", "counter", "Leaps count");
+		for (Map<String, StatImpl> statsByName : allStats()) {
+			for (StatImpl stat : statsByName.values())
+				sample("leaps_total", stat).append(stat.getLeapsCount()).append('\n');
+		}
+		family("failed_leaps", "counter", "Leaps which were started again by the same thread without stop");
+		for (Map<String, StatImpl> statsByName : allStats()) {
+			for (StatImpl stat : statsByName.values())
+				sample("failed_leaps_total", stat).append(stat.getFailedLeapsCount()).append('\n');
+		}
+		family("peers", "gauge", "PerfStat instances sharing the statistic");
+		for (Map<String, StatImpl> statsByName : allStats()) {
+			for (StatImpl stat : statsByName.values())
+				sample("peers", stat).append(stat.getPeersCount()).append('\n');
+		}
+		family("time_seconds", "counter", "Total time, extrapolated if sampled");
+		for (Map<String, StatImpl> statsByName : allStats()) {
+			for (StatImpl stat : statsByName.values())
+				seconds(sample("time_seconds_total", stat), (long) (stat.getTotalTimeMs() * 1_000_000)).append('\n');
+		}
+		family("leap_seconds", "histogram", "Measured leap time");
+		for (Map<String, StatImpl> statsByName : allStats()) {
+			for (StatImpl stat : statsByName.values())
+				histogram(stat);
+		}
+		buffer.append("# EOF\n");
+		return buffer.toString().getBytes(UTF_8);
+	}
+	
+	@Override
+	public synchronized void close() {
+		if (executor != null)
+			executor.shutdownNow();
+		if (httpServer != null)
+			httpServer.stop(0);
+		executor = null;
+		httpServer = null;
+	}
+	
+	private void handle(HttpExchange exchange) throws IOException {
+		try (OutputStream out = exchange.getResponseBody()) {
+			byte[] body = scrape();
+			exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+			exchange.sendResponseHeaders(200, body.length);
+			out.write(body);
+		}
+	}
+	
+	private void family(String name, String type, String help) {
+		buffer.append("# TYPE ").append(prefix).append('_').append(name).append(' ').append(type).append('\n');
+		buffer.append("# HELP ").append(prefix).append('_').append(name).append(' ').append(help).append('\n');
+	}
+	
+	private StringBuilder sample(String name, StatImpl stat) {
+		return buffer.append(prefix).append('_').append(name).append('{').append(labels(stat)).append("} ");
+	}
+	
+	private void histogram(StatImpl stat) {
+		long totalTimeNs;
+		synchronized (stat) {
+			stat.drain();
+			totalTimeNs = stat.totalTimeNs;
+		}
+		Histogram histogram = stat.histogram;
+		int ranges = Histogram.getRanges();
+		int maxRange = MIN_EXPORTED_RANGE;
+		for (int range = MIN_EXPORTED_RANGE; range < ranges - 1; range++) {
+			if (histogram.getRangeCount(range) > 0)
+				maxRange = range;
+		}
+		
+		long count = 0;
+		for (int range = 0; range < ranges; range++) {
+			count += histogram.getRangeCount(range);
+			if (range >= MIN_EXPORTED_RANGE && range <= maxRange)
+				buffer.append(prefix).append("_leap_seconds_bucket{").append(labels(stat)).append(BUCKET_BOUNDS[range]).append(count).append('\n');
+		}
+		buffer.append(prefix).append("_leap_seconds_bucket{").append(labels(stat)).append(BUCKET_BOUNDS[ranges - 1]).append(count).append('\n');
+		sample("leap_seconds_count", stat).append(count).append('\n');
+		seconds(sample("leap_seconds_sum", stat), totalTimeNs).append('\n');
+	}
+	
+	/**
+	 * Nanoseconds as canonical fixed point seconds (no exponent, at least one fraction digit, no trailing zeros)
+	 */
+	private static StringBuilder seconds(StringBuilder sb, long ns) {
+		sb.append(ns / NANOS_PER_SECOND).append('.');
+		long fraction = ns % NANOS_PER_SECOND;
+		int digits = 9;
+		while (digits > 1 && fraction % 10 == 0) {
+			fraction /= 10;
+			digits--;
+		}
+		long pad = 1;
+		for (int i = 1; i < digits; i++)
+			pad *= 10;
+		for (; pad > 1 && pad > fraction; pad /= 10)
+			sb.append('0');
+		return sb.append(fraction);
+	}
+	
+	private String labels(StatImpl stat) {
+		return labels.computeIfAbsent(stat, s -> "type=\"" + escape(s.getType()) + "\",name=\"" + escape(s.getName()) + "\"");
+	}
+	
+	private static String escape(String value) {
+		return value == null ? "" : value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
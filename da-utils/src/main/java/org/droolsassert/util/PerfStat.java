@@ -1,7 +1,11 @@
 package org.droolsassert.util;
 
+import static java.lang.Boolean.parseBoolean;
+import static java.lang.Integer.parseInt;
 import static java.lang.Long.parseLong;
-import static java.lang.System.currentTimeMillis;
+import static java.lang.Runtime.getRuntime;
+import static java.lang.System.err;
+import static java.lang.System.nanoTime;
 import static java.lang.System.getProperty;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static javax.management.ObjectName.quote;
@@ -11,8 +15,11 @@ import static org.apache.commons.lang3.StringUtils.isNoneEmpty;
 import static org.droolsassert.util.AlphanumComparator.ALPHANUM_COMPARATOR;
 import static org.droolsassert.util.JmxUtils.registerMBean;
 
+import java.io.File;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -20,7 +27,8 @@ import org.apache.commons.lang3.time.StopWatch;
 
 /**
  * Performance statistic per type (optional) and name. Exposed via MBean server to monitor in real-time with default 4s aggregation time (jvisualvm mbean charts refresh interval).
- * Output statistic from this VM or deliver serializable and merge from several VMs.
+ * Output statistic from this VM or deliver serializable and merge from several VMs.<br>
+ * Time percentiles (all-time and last aggregation period) are tracked by log-bucketed {@link Histogram}.
  * 
  * <pre>
  * private PerfStat methodPerf = new PerfStat("type", "name") 
@@ -31,19 +39,56 @@ import org.apache.commons.lang3.time.StopWatch;
  *         ...
  *         methodPerf.stop();
  *     }
+ * 
+ *     public void myCheapMethod() {
+ *         long startNs = methodPerf.startNs();
+ *         ...
+ *         methodPerf.stop(startNs);
+ *     }
  * }
  * </pre>
  * 
+ * Statistic is updated under the monitor by default. Define system property {@code -Dperfstat.striped=true} (or {@link #setDefaultStriped(boolean)}) to record measurements into striped cells
+ * without locking, these are merged into the statistic when it is read (getters, JMX, serialization) or aggregation period passes over. Use it when many threads measure the same name.<br>
+ * Leap measured concurrently with the merge may be attributed to the next aggregation period, at most one leap per measuring thread.<br>
+ * Statistic of every type is exposed by single {@link PerfStatAggregate} ({@code <domain>:type=<type>,scope=all}) as well, define {@code -Dperfstat.mbeanPerName=false}
+ * (or {@link #setMBeanPerName(boolean)}) to skip MBean per name when there are thousands of names.<br>
+ * Define {@code -Dperfstat.sharedFile=<path>} (or {@link #setSharedFile(SharedStatFile)}) to publish statistic into memory-mapped file and read consolidated view of all VMs on the host.<br>
+ * Define {@code -Dperfstat.samplingRate=N} (or {@link #setSamplingRate(int)}) to measure time of 1 in N leaps started by {@link #startNs()} for very hot names, leaps count stays exact.
+ * 
  * @see #start()
  * @see #stop()
+ * @see #startNs()
+ * @see #stop(long)
  * @see PerfStat#getPerfStat()
  * @see StopWatch
  */
 public class PerfStat {
 	
+	/**
+	 * {@link #startNs()} token for the leap which is counted without measuring its time
+	 */
+	public static final long NOT_SAMPLED = Long.MIN_VALUE;
+	
 	private static String jmxDomain = getProperty("perfstat.domain", "perfstat");
 	private static long defaultAggregationPeriodMs = parseLong(getProperty("perfstat.aggregationPeriodMs", "4000"));
+	private static boolean defaultStriped = parseBoolean(getProperty("perfstat.striped", "false"));
+	private static int defaultSamplingRate = parseInt(getProperty("perfstat.samplingRate", "1"));
+	private static boolean mbeanPerName = parseBoolean(getProperty("perfstat.mbeanPerName", "true"));
+	private static volatile SharedStatFile sharedFile;
+	private static boolean sharedFileHook;
 	private static final ConcurrentHashMap<String, Map<String, StatImpl>> stats = new ConcurrentHashMap<>();
+	private static final Set<String> aggregatedTypes = ConcurrentHashMap.newKeySet();
+	static {
+		String sharedFilePath = getProperty("perfstat.sharedFile");
+		if (sharedFilePath != null) {
+			try {
+				setSharedFile(new SharedStatFile(new File(sharedFilePath), parseInt(getProperty("perfstat.sharedFile.slots", "4096"))));
+			} catch (RuntimeException e) {
+				err.println("Statistic is not shared, " + e.getMessage() + ": " + (e.getCause() != null ? e.getCause() : e));
+			}
+		}
+	}
 	
 	public static String getJmxDomain() {
 		return jmxDomain;
@@ -61,6 +106,58 @@ public class PerfStat {
 		PerfStat.defaultAggregationPeriodMs = defaultAggregationPeriodMs;
 	}
 	
+	public static boolean isDefaultStriped() {
+		return defaultStriped;
+	}
+	
+	/**
+	 * Record measurements of new {@link PerfStat} instances into striped cells without locking
+	 */
+	public static void setDefaultStriped(boolean defaultStriped) {
+		PerfStat.defaultStriped = defaultStriped;
+	}
+	
+	public static int getDefaultSamplingRate() {
+		return defaultSamplingRate;
+	}
+	
+	/**
+	 * Measure time of 1 in N leaps started by {@link #startNs()} for new {@link PerfStat} instances
+	 */
+	public static void setDefaultSamplingRate(int defaultSamplingRate) {
+		PerfStat.defaultSamplingRate = defaultSamplingRate;
+	}
+	
+	public static boolean isMBeanPerName() {
+		return mbeanPerName;
+	}
+	
+	/**
+	 * Register MBean for every new type and name (default), otherwise statistic is exposed only by {@link PerfStatAggregate} registered once per type
+	 */
+	public static void setMBeanPerName(boolean mbeanPerName) {
+		PerfStat.mbeanPerName = mbeanPerName;
+	}
+	
+	public static SharedStatFile getSharedFile() {
+		return sharedFile;
+	}
+	
+	/**
+	 * Publish statistic into the file shared by all VMs on the host every aggregation period and on exit, {@code null} to stop
+	 */
+	public static synchronized void setSharedFile(SharedStatFile sharedFile) {
+		PerfStat.sharedFile = sharedFile;
+		if (sharedFile != null && !sharedFileHook) {
+			sharedFileHook = true;
+			getRuntime().addShutdownHook(new Thread(() -> {
+				SharedStatFile file = PerfStat.sharedFile;
+				if (file != null)
+					file.detach();
+			}, "PerfStatSharedFile"));
+		}
+	}
+	
 	/**
 	 * Performance statistic for name (if type was not used)
 	 * 
@@ -118,11 +215,7 @@ public class PerfStat {
 	public static void merge(Map<String, Map<String, StatImpl>> rhsStatsByType) {
 		synchronized (stats) {
 			for (Entry<String, Map<String, StatImpl>> rhsStatsByName : rhsStatsByType.entrySet()) {
-				Map<String, StatImpl> lhsStatsByName = stats.get(rhsStatsByName.getKey());
-				if (lhsStatsByName == null) {
-					lhsStatsByName = new ConcurrentHashMap<>();
-					stats.put(rhsStatsByName.getKey(), lhsStatsByName);
-				}
+				Map<String, StatImpl> lhsStatsByName = statsByName(rhsStatsByName.getKey());
 				for (Entry<String, StatImpl> rhsStat : rhsStatsByName.getValue().entrySet()) {
 					StatImpl lhs = lhsStatsByName.get(rhsStat.getKey());
 					StatImpl rhs = rhsStat.getValue();
@@ -130,13 +223,19 @@ public class PerfStat {
 						lhsStatsByName.put(rhsStat.getKey(), rhs);
 						continue;
 					}
-					lhs.leapsCount += rhs.leapsCount;
-					lhs.failedLeapsCount += rhs.failedLeapsCount;
-					lhs.totalTimeNs += rhs.totalTimeNs;
-					if (rhs.minTimeNs < lhs.minTimeNs)
-						lhs.minTimeNs = rhs.minTimeNs;
-					if (rhs.maxTimeNs > lhs.maxTimeNs)
-						lhs.maxTimeNs = rhs.maxTimeNs;
+					rhs.drain();
+					synchronized (lhs) {
+						lhs.drain();
+						lhs.leapsCount += rhs.leapsCount;
+						lhs.failedLeapsCount += rhs.failedLeapsCount;
+						lhs.skippedLeapsCount += rhs.skippedLeapsCount;
+						lhs.totalTimeNs += rhs.totalTimeNs;
+						if (rhs.minTimeNs < lhs.minTimeNs)
+							lhs.minTimeNs = rhs.minTimeNs;
+						if (rhs.maxTimeNs > lhs.maxTimeNs)
+							lhs.maxTimeNs = rhs.maxTimeNs;
+					}
+					lhs.histogram.add(rhs.histogram);
 				}
 			}
 		}
@@ -154,6 +253,9 @@ public class PerfStat {
 	private ThreadLocal<StopWatch> stopWatch = ThreadLocal.withInitial(() -> new StopWatch());
 	private StatImpl stat;
 	private long aggregationPeriodNs;
+	private final boolean striped = defaultStriped;
+	private volatile int samplingRate = defaultSamplingRate;
+	private int sampleCount;
 	
 	public PerfStat(String name) {
 		this(EMPTY, name, defaultAggregationPeriodMs);
@@ -173,12 +275,7 @@ public class PerfStat {
 			type = EMPTY;
 		
 		Map<String, StatImpl> statsByName = stats.get(type);
-		if (statsByName == null) {
-			statsByName = new ConcurrentHashMap<>();
-			stats.put(type, statsByName);
-		}
-		
-		stat = statsByName.get(name);
+		stat = statsByName == null ? null : statsByName.get(name);
 		if (stat == null)
 			initStat(type, name);
 		stat.peersCount.incrementAndGet();
@@ -192,32 +289,52 @@ public class PerfStat {
 	
 	private void initStat(String type, String name) {
 		synchronized (stats) {
-			Map<String, StatImpl> statsByName = stats.get(type);
-			if (statsByName == null) {
-				statsByName = new ConcurrentHashMap<>();
-				stats.put(type, statsByName);
-			}
-			
+			Map<String, StatImpl> statsByName = statsByName(type);
 			stat = statsByName.get(name);
 			if (stat == null) {
 				stat = new StatImpl(type, name);
 				statsByName.put(name, stat);
-				
-				StringBuilder objName = new StringBuilder(jmxDomain);
-				objName.append(":");
-				if (isNoneEmpty(type)) {
-					objName.append("type=");
-					objName.append(quoteIfNeeded(type));
-					objName.append(",");
-				}
-				objName.append("name=");
-				objName.append(quoteIfNeeded(name));
-				registerMBean(objName.toString(), stat, Stat.class);
+				if (mbeanPerName)
+					registerMBean(objName(type, "name=" + quoteIfNeeded(name)), stat, Stat.class);
 			}
 		}
 	}
 	
-	private String quoteIfNeeded(String name) {
+	/**
+	 * Statistic by name for the type, created with {@link PerfStatAggregate} on first use. Must be called under the {@code stats} lock
+	 */
+	private static Map<String, StatImpl> statsByName(String type) {
+		Map<String, StatImpl> statsByName = stats.get(type);
+		if (statsByName == null) {
+			statsByName = new ConcurrentHashMap<>();
+			stats.put(type, statsByName);
+			if (aggregatedTypes.add(type))
+				registerMBean(objName(type, "scope=all"), new PerfStatAggregateImpl(type), PerfStatAggregate.class);
+		}
+		return statsByName;
+	}
+	
+	static Map<String, StatImpl> statsOfType(String type) {
+		return stats.get(type);
+	}
+	
+	static Collection<Map<String, StatImpl>> allStats() {
+		return stats.values();
+	}
+	
+	static String objName(String type, String property) {
+		StringBuilder objName = new StringBuilder(jmxDomain);
+		objName.append(":");
+		if (isNoneEmpty(type)) {
+			objName.append("type=");
+			objName.append(quoteIfNeeded(type));
+			objName.append(",");
+		}
+		objName.append(property);
+		return objName.toString();
+	}
+	
+	static String quoteIfNeeded(String name) {
 		return containsAny(name, '\n', '\\', '\"', '*', '?', ':') ? quote(name) : name;
 	}
 	
@@ -226,11 +343,8 @@ public class PerfStat {
 	 * Reset sample (period) values if aggregation time threshold passed over.
 	 */
 	public PerfStat start() {
-		if (stopWatch.get().isStarted()) {
-			synchronized (stat) {
-				stat.failedLeapsCount += 1;
-			}
-		}
+		if (stopWatch.get().isStarted())
+			fail();
 		stopWatch.get().reset();
 		stopWatch.get().start();
 		return this;
@@ -243,6 +357,84 @@ public class PerfStat {
 	public long stop() {
 		stopWatch.get().stop();
 		long timeNs = stopWatch.get().getNanoTime();
+		record(timeNs, nanoTime());
+		return timeNs;
+	}
+	
+	/**
+	 * Start to measure execution time without thread local state, pass returned token to {@link #stop(long)}.<br>
+	 * Lightweight alternative to {@link #start()} for very cheap code blocks, leaps which were never stopped are not counted as failed.<br>
+	 * Returns {@link #NOT_SAMPLED} for the leaps which are only counted due to {@link #setSamplingRate(int) sampling rate}.
+	 */
+	public long startNs() {
+		int rate = samplingRate;
+		if (rate > 1) {
+			// racy increment is fine, sampling does not need to be exact
+			if (++sampleCount < rate)
+				return NOT_SAMPLED;
+			sampleCount = 0;
+		}
+		return nanoTime();
+	}
+	
+	/**
+	 * Stop to measure execution time started by {@link #startNs()}, update performance statistic for the name.<br>
+	 * Leap which was not sampled is counted only, zero time is returned.
+	 */
+	public long stop(long startNs) {
+		if (startNs == NOT_SAMPLED) {
+			skip();
+			return 0;
+		}
+		long currentTimeNs = nanoTime();
+		long timeNs = currentTimeNs - startNs;
+		record(timeNs, currentTimeNs);
+		return timeNs;
+	}
+	
+	/**
+	 * Update performance statistic with the time measured elsewhere (thread CPU time etc.)
+	 */
+	public void record(long value) {
+		record(value, nanoTime());
+	}
+	
+	/**
+	 * Count the leap without measuring its time, total time is extrapolated from the measured leaps
+	 */
+	public void skip() {
+		if (striped) {
+			stat.cells().skipped();
+			return;
+		}
+		synchronized (stat) {
+			stat.leapsCount += 1;
+			stat.leapsCountSample += 1;
+			stat.skippedLeapsCount += 1;
+			stat.skippedLeapsCountSample += 1;
+		}
+	}
+	
+	/**
+	 * Count the leap which was started but never stopped (exception thrown by the measured code etc.)
+	 */
+	public void fail() {
+		if (striped) {
+			stat.cells().failed();
+			return;
+		}
+		synchronized (stat) {
+			stat.failedLeapsCount += 1;
+		}
+	}
+	
+	private void record(long timeNs, long currentTimeNs) {
+		stat.recordHistogram(timeNs);
+		if (striped) {
+			stat.cells().record(timeNs);
+			rollover(currentTimeNs);
+			return;
+		}
 		synchronized (stat) {
 			stat.leapTimeNs = timeNs;
 			stat.totalTimeNs += timeNs;
@@ -258,22 +450,34 @@ public class PerfStat {
 			stat.leapsCount += 1;
 			stat.leapsCountSample += 1;
 		}
-		long currentTimeNs = MILLISECONDS.toNanos(currentTimeMillis());
-		if (currentTimeNs > stat.lastAggregationTimeNs + aggregationPeriodNs && stat.leapsCountSample > 0) {
+		rollover(currentTimeNs);
+	}
+	
+	/**
+	 * Reset sample (period) values if aggregation time threshold passed over
+	 */
+	private void rollover(long currentTimeNs) {
+		if (currentTimeNs > stat.lastAggregationTimeNs + aggregationPeriodNs && (striped || stat.leapsCountSample > 0)) {
 			synchronized (stat) {
-				if (currentTimeNs > stat.lastAggregationTimeNs + aggregationPeriodNs && stat.leapsCountSample > 0) {
-					stat.avgTimeSampleNs = stat.totalTimeSampleNs / stat.leapsCountSample;
+				stat.drain();
+				long measuredLeapsCountSample = stat.leapsCountSample - stat.skippedLeapsCountSample;
+				if (currentTimeNs > stat.lastAggregationTimeNs + aggregationPeriodNs && measuredLeapsCountSample > 0) {
+					stat.avgTimeSampleNs = stat.totalTimeSampleNs / measuredLeapsCountSample;
 					stat.leapsCountSample = 0;
+					stat.skippedLeapsCountSample = 0;
 					stat.totalTimeSampleNs = 0;
 					stat.maxTimeSampleNs = stat.maxTimeThresholdNs;
 					stat.maxTimeThresholdNs = 0;
 					stat.minTimeSampleNs = stat.minTimeThresholdNs;
 					stat.minTimeThresholdNs = 0;
+					stat.rolloverHistogram();
 					stat.lastAggregationTimeNs = currentTimeNs;
+					SharedStatFile file = sharedFile;
+					if (file != null)
+						file.publish(stat);
 				}
 			}
 		}
-		return timeNs;
 	}
 	
 	/**
@@ -291,6 +495,32 @@ public class PerfStat {
 		return stat;
 	}
 	
+	/**
+	 * {@link System#nanoTime()} of the last sample (period) values rollover
+	 */
+	public long getLastAggregationTimeNs() {
+		return stat.lastAggregationTimeNs;
+	}
+	
+	public boolean isStriped() {
+		return striped;
+	}
+	
+	public int getSamplingRate() {
+		return samplingRate;
+	}
+	
+	/**
+	 * Measure time of 1 in N leaps started by {@link #startNs()}, the rest are counted only.<br>
+	 * Leaps count stays exact, total time is extrapolated and statistic is flagged as {@link Stat#isSampled() sampled}.
+	 */
+	public PerfStat setSamplingRate(int samplingRate) {
+		if (samplingRate < 1)
+			throw new IllegalArgumentException("Sampling rate must be positive: " + samplingRate);
+		this.samplingRate = samplingRate;
+		return this;
+	}
+	
 	public String getType() {
 		return stat.getType();
 	}
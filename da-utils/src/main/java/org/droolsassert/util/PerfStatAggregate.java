@@ -0,0 +1,29 @@
+package org.droolsassert.util;
+
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+/**
+ * All performance statistic of the type as a single snapshot, so monitoring tools need one remote call per scrape.<br>
+ * Rows are indexed by name, columns are {@link Stat} properties.
+ * 
+ * @see PerfStat#setMBeanPerName(boolean)
+ */
+public interface PerfStatAggregate {
+	
+	String getType();
+	
+	int getSize();
+	
+	TabularData getStats();
+	
+	/**
+	 * Statistic for the name, {@code null} if there is no such name
+	 */
+	CompositeData getStat(String name);
+	
+	/**
+	 * Reset statistic for all names of the type
+	 */
+	void reset();
+}
@@ -0,0 +1,101 @@
+package org.droolsassert.util;
+
+import static javax.management.openmbean.SimpleType.BOOLEAN;
+import static javax.management.openmbean.SimpleType.DOUBLE;
+import static javax.management.openmbean.SimpleType.LONG;
+import static javax.management.openmbean.SimpleType.STRING;
+import static org.droolsassert.util.PerfStat.statsOfType;
+
+import java.util.Map;
+
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+/**
+ * Aggregate view over the live statistic of the type, names added later are picked up on the next call
+ */
+final class PerfStatAggregateImpl implements PerfStatAggregate {
+	
+	private static final String[] ITEMS = {
+			"name", "leapsCount", "measuredLeapsCount", "sampled", "failedLeapsCount", "peersCount",
+			"leapTimeMs", "minTimeMs", "avgTimeMs", "maxTimeMs", "totalTimeMs",
+			"minTimeSampleMs", "avgTimeSampleMs", "maxTimeSampleMs",
+			"p50TimeMs", "p90TimeMs", "p99TimeMs", "p999TimeMs",
+			"p50TimeSampleMs", "p90TimeSampleMs", "p99TimeSampleMs", "p999TimeSampleMs" };
+	private static final OpenType<?>[] ITEM_TYPES = {
+			STRING, LONG, LONG, BOOLEAN, LONG, LONG,
+			DOUBLE, DOUBLE, DOUBLE, DOUBLE, DOUBLE,
+			DOUBLE, DOUBLE, DOUBLE,
+			DOUBLE, DOUBLE, DOUBLE, DOUBLE,
+			DOUBLE, DOUBLE, DOUBLE, DOUBLE };
+	private static final CompositeType STAT_TYPE;
+	private static final TabularType STATS_TYPE;
+	static {
+		try {
+			STAT_TYPE = new CompositeType("Stat", "Performance statistic", ITEMS, ITEMS, ITEM_TYPES);
+			STATS_TYPE = new TabularType("Stats", "Performance statistic by name", STAT_TYPE, new String[] { "name" });
+		} catch (OpenDataException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+	
+	private final String type;
+	
+	PerfStatAggregateImpl(String type) {
+		this.type = type;
+	}
+	
+	@Override
+	public String getType() {
+		return type;
+	}
+	
+	@Override
+	public int getSize() {
+		Map<String, StatImpl> stats = statsOfType(type);
+		return stats == null ? 0 : stats.size();
+	}
+	
+	@Override
+	public TabularData getStats() {
+		TabularDataSupport result = new TabularDataSupport(STATS_TYPE);
+		Map<String, StatImpl> stats = statsOfType(type);
+		if (stats != null)
+			stats.values().forEach(stat -> result.put(toCompositeData(stat)));
+		return result;
+	}
+	
+	@Override
+	public CompositeData getStat(String name) {
+		Map<String, StatImpl> stats = statsOfType(type);
+		StatImpl stat = stats == null ? null : stats.get(name);
+		return stat == null ? null : toCompositeData(stat);
+	}
+	
+	@Override
+	public void reset() {
+		Map<String, StatImpl> stats = statsOfType(type);
+		if (stats != null)
+			stats.values().forEach(StatImpl::reset);
+	}
+	
+	static CompositeData toCompositeData(Stat stat) {
+		Object[] values = {
+				stat.getName(), stat.getLeapsCount(), stat.getMeasuredLeapsCount(), stat.isSampled(), stat.getFailedLeapsCount(), stat.getPeersCount(),
+				stat.getLeapTimeMs(), stat.getMinTimeMs(), stat.getAvgTimeMs(), stat.getMaxTimeMs(), stat.getTotalTimeMs(),
+				stat.getMinTimeSampleMs(), stat.getAvgTimeSampleMs(), stat.getMaxTimeSampleMs(),
+				stat.getP50TimeMs(), stat.getP90TimeMs(), stat.getP99TimeMs(), stat.getP999TimeMs(),
+				stat.getP50TimeSampleMs(), stat.getP90TimeSampleMs(), stat.getP99TimeSampleMs(), stat.getP999TimeSampleMs() };
+		try {
+			return new CompositeDataSupport(STAT_TYPE, ITEMS, values);
+		} catch (OpenDataException e) {
+			throw new RuntimeException("Cannot create composite data for " + stat.getFullName(), e);
+		}
+	}
+}
@@ -0,0 +1,369 @@
+package org.droolsassert.util;
+
+import static com.google.common.hash.Hashing.sha256;
+import static java.lang.Math.min;
+import static java.lang.invoke.MethodHandles.byteBufferViewVarHandle;
+import static java.nio.ByteOrder.nativeOrder;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.commons.io.FileUtils.forceMkdirParent;
+import static org.droolsassert.util.AlphanumComparator.ALPHANUM_COMPARATOR;
+import static org.droolsassert.util.PerfStat.allStats;
+import static org.droolsassert.util.ReentrantFileLock.newReentrantFileLockFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * Memory-mapped file with performance statistic counters shared by all VMs on the host (parallel surefire forks, several service instances etc.)<br>
+ * Every type and name gets a fixed slot allocated under {@link ReentrantFileLock}, VMs add their deltas into the slot atomically
+ * every aggregation period and on exit. Any VM can read consolidated live view without RPC or serialization.<br>
+ * Leaps, failed and skipped leaps, total, min and max time and peers are shared, histograms are not.<br>
+ * Counters are zeroed when the first VM opens the file (no other VM holds it), so every run starts from scratch, including the contribution of killed VMs.
+ * Use {@link #reset()} to start over while other VMs are running.<br>
+ * Type and name which do not fit the slot are cut and suffixed with the hash of the whole key.
+ *
+ * <pre>
+ * -Dperfstat.sharedFile=target/droolsassert/perfstat
+ * </pre>
+ *
+ * @see PerfStat#setSharedFile(SharedStatFile)
+ * @see #getPerfStat()
+ */
+public final class SharedStatFile {
+	
+	private static final int MAGIC = 0x50535446;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 64;
+	private static final int SLOT_SIZE = 256;
+	private static final int KEY_SIZE = SLOT_SIZE - 60;
+	private static final int SLOTS_OFFSET = 8;
+	private static final int USED_SLOTS_OFFSET = 16;
+	private static final int GENERATION_OFFSET = 20;
+	private static final int LEAPS = 0;
+	private static final int FAILED_LEAPS = 8;
+	private static final int SKIPPED_LEAPS = 16;
+	private static final int TOTAL_TIME = 24;
+	private static final int MIN_TIME = 32;
+	private static final int MAX_TIME = 40;
+	private static final int PEERS = 48;
+	private static final int KEY_LENGTH = 56;
+	private static final int KEY = 60;
+	private static final char KEY_SEPARATOR = '\0';
+	private static final String KEY_HASH_SEPARATOR = "~";
+	private static final int KEY_HASH_LENGTH = 32;
+	private static final VarHandle LONG = byteBufferViewVarHandle(long[].class, nativeOrder());
+	private static final VarHandle INT = byteBufferViewVarHandle(int[].class, nativeOrder());
+	
+	/**
+	 * All slots are taken, statistic is not shared
+	 */
+	private static final int NO_ROOM = -1;
+	
+	private final File file;
+	private final MappedByteBuffer buffer;
+	private final int slots;
+	private final ReentrantFileLock slotsLock;
+	private final FileChannel peersChannel;
+	private final Map<String, Integer> slotsByKey = new ConcurrentHashMap<>();
+	private volatile int slotsGeneration;
+	private final Map<StatImpl, Published> published = new MapMaker().weakKeys().makeMap();
+	
+	/**
+	 * Opens shared file, created with {@code slots} capacity if it does not exist. Capacity of existing file is kept.<br>
+	 * Counters are zeroed if no other VM has the file open.
+	 */
+	public SharedStatFile(File file, int slots) {
+		this.file = file.getAbsoluteFile();
+		slotsLock = newReentrantFileLockFactory(new File(this.file.getPath() + ".lock")).newLock(0);
+		slotsLock.lock();
+		try (RandomAccessFile raf = new RandomAccessFile(forceMkdirParentOf(this.file), "rw"); FileChannel channel = raf.getChannel()) {
+			if (raf.length() < HEADER_SIZE) {
+				raf.setLength(HEADER_SIZE + (long) slots * SLOT_SIZE);
+				buffer = channel.map(READ_WRITE, 0, raf.length());
+				buffer.putInt(0, MAGIC);
+				buffer.putInt(4, VERSION);
+				buffer.putInt(SLOTS_OFFSET, slots);
+				buffer.putInt(12, SLOT_SIZE);
+			} else {
+				buffer = channel.map(READ_WRITE, 0, raf.length());
+				if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(12) != SLOT_SIZE)
+					throw new IllegalStateException("Not a shared performance statistic file " + this.file);
+			}
+			this.slots = buffer.getInt(SLOTS_OFFSET);
+			peersChannel = new RandomAccessFile(this.file.getPath() + ".peers", "rw").getChannel();
+			if (!otherPeersAlive())
+				clear();
+			lockShared();
+			slotsGeneration = generation();
+		} catch (IOException e) {
+			throw new RuntimeException("Cannot open shared performance statistic file " + this.file, e);
+		} finally {
+			slotsLock.unlock();
+		}
+	}
+	
+	private static File forceMkdirParentOf(File file) throws IOException {
+		forceMkdirParent(file);
+		return file;
+	}
+	
+	/**
+	 * Every VM holds shared lock on the peers file while it has the file open, exclusive lock is granted only when there are no other VMs
+	 */
+	private boolean otherPeersAlive() throws IOException {
+		try (FileLock exclusive = peersChannel.tryLock()) {
+			return exclusive == null;
+		} catch (OverlappingFileLockException e) {
+			// opened by this VM already
+			return true;
+		}
+	}
+	
+	private void lockShared() throws IOException {
+		try {
+			peersChannel.lock(0, Long.MAX_VALUE, true);
+		} catch (OverlappingFileLockException e) {
+			// held by this VM already
+		}
+	}
+	
+	public File getFile() {
+		return file;
+	}
+	
+	public int getSlots() {
+		return slots;
+	}
+	
+	public int getUsedSlots() {
+		return (int) INT.getVolatile(buffer, USED_SLOTS_OFFSET);
+	}
+	
+	/**
+	 * Zero all counters and free the slots to start over while other VMs are running.<br>
+	 * VMs allocate their slots again on the next publication and add what was recorded after the reset, publication racing with the reset may be lost.
+	 */
+	public void reset() {
+		slotsLock.lock();
+		try {
+			clear();
+		} finally {
+			slotsLock.unlock();
+		}
+	}
+	
+	private void clear() {
+		int usedSlots = min(getUsedSlots(), slots);
+		INT.setVolatile(buffer, USED_SLOTS_OFFSET, 0);
+		INT.getAndAdd(buffer, GENERATION_OFFSET, 1);
+		for (int offset = HEADER_SIZE; offset < HEADER_SIZE + usedSlots * SLOT_SIZE; offset += Long.BYTES)
+			LONG.setVolatile(buffer, offset, 0L);
+	}
+	
+	private int generation() {
+		return (int) INT.getVolatile(buffer, GENERATION_OFFSET);
+	}
+	
+	/**
+	 * Add what was recorded by this VM since the previous call into the slot of the statistic. Must be called under the statistic lock
+	 */
+	void publish(StatImpl stat) {
+		int generation = generation();
+		Published last = published.computeIfAbsent(stat, k -> new Published());
+		if (last.generation != generation) {
+			// new file or the file was reset, counters of the slot start from zero, peers are added again
+			last.generation = generation;
+			last.slot = slot(stat.getType(), stat.getName(), generation);
+			last.peersCount = 0;
+		}
+		if (last.slot == NO_ROOM)
+			return;
+		if (stat.resetCount != last.resetCount) {
+			last.resetCount = stat.resetCount;
+			last.leapsCount = 0;
+			last.failedLeapsCount = 0;
+			last.skippedLeapsCount = 0;
+			last.totalTimeNs = 0;
+		}
+		
+		int offset = HEADER_SIZE + last.slot * SLOT_SIZE;
+		long peersCount = stat.peersCount.get();
+		LONG.getAndAdd(buffer, offset + LEAPS, stat.leapsCount - last.leapsCount);
+		LONG.getAndAdd(buffer, offset + FAILED_LEAPS, stat.failedLeapsCount - last.failedLeapsCount);
+		LONG.getAndAdd(buffer, offset + SKIPPED_LEAPS, stat.skippedLeapsCount - last.skippedLeapsCount);
+		LONG.getAndAdd(buffer, offset + TOTAL_TIME, stat.totalTimeNs - last.totalTimeNs);
+		LONG.getAndAdd(buffer, offset + PEERS, peersCount - last.peersCount);
+		accumulateMin(offset + MIN_TIME, stat.minTimeNs);
+		accumulateMax(offset + MAX_TIME, stat.maxTimeNs);
+		
+		last.leapsCount = stat.leapsCount;
+		last.failedLeapsCount = stat.failedLeapsCount;
+		last.skippedLeapsCount = stat.skippedLeapsCount;
+		last.totalTimeNs = stat.totalTimeNs;
+		last.peersCount = peersCount;
+	}
+	
+	/**
+	 * Publish statistic of all types and names of this VM
+	 */
+	public void publishAll() {
+		for (Map<String, StatImpl> statsByName : allStats()) {
+			for (StatImpl stat : statsByName.values()) {
+				synchronized (stat) {
+					stat.drain();
+					publish(stat);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Publish statistic of this VM for the last time and withdraw its peers, called on exit
+	 */
+	void detach() {
+		publishAll();
+		int generation = generation();
+		for (Published last : published.values()) {
+			if (last.generation == generation && last.slot != NO_ROOM)
+				LONG.getAndAdd(buffer, HEADER_SIZE + last.slot * SLOT_SIZE + PEERS, -last.peersCount);
+		}
+	}
+	
+	/**
+	 * Consolidated statistic of all VMs for all types and names, as of the last publication of every VM
+	 */
+	public TreeMap<String, TreeMap<String, Stat>> getPerfStat() {
+		TreeMap<String, TreeMap<String, Stat>> result = new TreeMap<>(ALPHANUM_COMPARATOR);
+		int usedSlots = min(getUsedSlots(), slots);
+		for (int slot = 0; slot < usedSlots; slot++) {
+			int offset = HEADER_SIZE + slot * SLOT_SIZE;
+			String key = readKey(offset);
+			int separator = key.indexOf(KEY_SEPARATOR);
+			StatImpl stat = separator < 0 ? new StatImpl(key, "") : new StatImpl(key.substring(0, separator), key.substring(separator + 1));
+			stat.leapsCount = (long) LONG.getVolatile(buffer, offset + LEAPS);
+			stat.failedLeapsCount = (long) LONG.getVolatile(buffer, offset + FAILED_LEAPS);
+			stat.skippedLeapsCount = (long) LONG.getVolatile(buffer, offset + SKIPPED_LEAPS);
+			stat.totalTimeNs = (long) LONG.getVolatile(buffer, offset + TOTAL_TIME);
+			stat.minTimeNs = (long) LONG.getVolatile(buffer, offset + MIN_TIME);
+			stat.maxTimeNs = (long) LONG.getVolatile(buffer, offset + MAX_TIME);
+			stat.peersCount.set((long) LONG.getVolatile(buffer, offset + PEERS));
+			result.computeIfAbsent(stat.getType(), type -> new TreeMap<>(ALPHANUM_COMPARATOR)).put(stat.getName(), stat);
+		}
+		return result;
+	}
+	
+	/**
+	 * Find the slot allocated for the type and name by any VM or allocate the new one
+	 */
+	private int slot(String type, String name, int generation) {
+		if (slotsGeneration != generation) {
+			slotsByKey.clear();
+			slotsGeneration = generation;
+		}
+		String key = type + KEY_SEPARATOR + name;
+		Integer slot = slotsByKey.get(key);
+		if (slot != null)
+			return slot;
+		
+		byte[] keyBytes = keyBytes(key);
+		slotsLock.lock();
+		try {
+			int usedSlots = getUsedSlots();
+			for (int i = 0; i < usedSlots; i++) {
+				if (keyEquals(HEADER_SIZE + i * SLOT_SIZE, keyBytes)) {
+					slotsByKey.put(key, i);
+					return i;
+				}
+			}
+			if (usedSlots == slots)
+				return NO_ROOM;
+			
+			int offset = HEADER_SIZE + usedSlots * SLOT_SIZE;
+			ByteBuffer keyBuffer = buffer.duplicate();
+			keyBuffer.position(offset + KEY);
+			keyBuffer.put(keyBytes);
+			buffer.putInt(offset + KEY_LENGTH, keyBytes.length);
+			INT.setVolatile(buffer, USED_SLOTS_OFFSET, usedSlots + 1);
+			slotsByKey.put(key, usedSlots);
+			return usedSlots;
+		} finally {
+			slotsLock.unlock();
+		}
+	}
+	
+	/**
+	 * Key which does not fit the slot is cut at character boundary and suffixed with the hash of the whole key, so long names never share the slot
+	 */
+	static byte[] keyBytes(String key) {
+		byte[] bytes = key.getBytes(UTF_8);
+		if (bytes.length <= KEY_SIZE)
+			return bytes;
+		byte[] hash = (KEY_HASH_SEPARATOR + sha256().hashBytes(bytes).toString().substring(0, KEY_HASH_LENGTH)).getBytes(UTF_8);
+		int length = KEY_SIZE - hash.length;
+		while ((bytes[length] & 0xC0) == 0x80)
+			length--;
+		byte[] result = new byte[length + hash.length];
+		System.arraycopy(bytes, 0, result, 0, length);
+		System.arraycopy(hash, 0, result, length, hash.length);
+		return result;
+	}
+	
+	private boolean keyEquals(int offset, byte[] keyBytes) {
+		if (buffer.getInt(offset + KEY_LENGTH) != keyBytes.length)
+			return false;
+		for (int i = 0; i < keyBytes.length; i++) {
+			if (buffer.get(offset + KEY + i) != keyBytes[i])
+				return false;
+		}
+		return true;
+	}
+	
+	private String readKey(int offset) {
+		byte[] keyBytes = new byte[buffer.getInt(offset + KEY_LENGTH)];
+		buffer.get(offset + KEY, keyBytes);
+		return new String(keyBytes, UTF_8);
+	}
+	
+	private void accumulateMin(int offset, long value) {
+		if (value == 0)
+			return;
+		long current;
+		do {
+			current = (long) LONG.getVolatile(buffer, offset);
+		} while ((current == 0 || value < current) && !LONG.compareAndSet(buffer, offset, current, value));
+	}
+	
+	private void accumulateMax(int offset, long value) {
+		long current;
+		do {
+			current = (long) LONG.getVolatile(buffer, offset);
+		} while (value > current && !LONG.compareAndSet(buffer, offset, current, value));
+	}
+	
+	/**
+	 * Slot of the statistic and the values added into it so far
+	 */
+	private static final class Published {
+		private int generation = -1;
+		private int slot;
+		private long resetCount;
+		private long leapsCount;
+		private long failedLeapsCount;
+		private long skippedLeapsCount;
+		private long totalTimeNs;
+		private long peersCount;
+	}
+}
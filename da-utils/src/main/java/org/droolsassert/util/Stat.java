@@ -11,6 +11,16 @@ public interface Stat extends Serializable {
 	
 	long getLeapsCount();
 	
+	/**
+	 * Leaps with measured time, less than {@link #getLeapsCount()} if statistic is sampled
+	 */
+	long getMeasuredLeapsCount();
+	
+	/**
+	 * Some leaps were counted without measuring the time, total time is extrapolated from the measured leaps
+	 */
+	boolean isSampled();
+	
 	double getMinTimeMs();
 	
 	double getMinTimeSampleMs();
@@ -27,6 +37,32 @@ public interface Stat extends Serializable {
 	
 	double getTotalTimeMs();
 	
+	double getP50TimeMs();
+	
+	double getP90TimeMs();
+	
+	double getP99TimeMs();
+	
+	double getP999TimeMs();
+	
+	double getP50TimeSampleMs();
+	
+	double getP90TimeSampleMs();
+	
+	double getP99TimeSampleMs();
+	
+	double getP999TimeSampleMs();
+	
+	/**
+	 * Time at percentile (0 - 100) for all measurements
+	 */
+	double getPercentileTimeMs(double percentile);
+	
+	/**
+	 * Time at percentile (0 - 100) for the last aggregation period
+	 */
+	double getPercentileTimeSampleMs(double percentile);
+	
 	long getFailedLeapsCount();
 	
 	long getPeersCount();
@@ -1,20 +1,25 @@
 package org.droolsassert.util;
 
 import static java.lang.String.format;
-import static java.lang.System.currentTimeMillis;
-import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.lang.System.nanoTime;
 import static org.apache.commons.lang3.StringUtils.EMPTY;
 import static org.droolsassert.util.PerfStat.round;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 public final class StatImpl implements Stat {
-	private static final long serialVersionUID = 6025961415245995217L;
+	private static final long serialVersionUID = 6025961415245995218L;
 	private String type;
 	private String name;
 	long leapsCount;
 	long leapsCountSample;
 	long failedLeapsCount;
+	long skippedLeapsCount;
+	long skippedLeapsCountSample;
 	long totalTimeNs;
 	long totalTimeSampleNs;
 	long avgTimeSampleNs;
@@ -25,8 +30,13 @@ public final class StatImpl implements Stat {
 	long maxTimeNs;
 	long maxTimeSampleNs;
 	long maxTimeThresholdNs;
+	final Histogram histogram = new Histogram();
+	volatile Histogram histogramThreshold = new Histogram();
+	volatile Histogram histogramSample = new Histogram();
 	final AtomicLong peersCount = new AtomicLong();
-	volatile long lastAggregationTimeNs = MILLISECONDS.toNanos(currentTimeMillis());
+	transient volatile long lastAggregationTimeNs = nanoTime();
+	transient long resetCount;
+	private transient volatile Cells cells;
 	
 	public StatImpl() {
 		// for deserialization
@@ -37,11 +47,38 @@ public final class StatImpl implements Stat {
 		this.name = name;
 	}
 	
+	/**
+	 * Striped cells to record measurements without locking, created on first use
+	 */
+	Cells cells() {
+		Cells c = cells;
+		if (c == null) {
+			synchronized (this) {
+				if (cells == null)
+					cells = new Cells();
+				c = cells;
+			}
+		}
+		return c;
+	}
+	
+	/**
+	 * Merge measurements recorded in striped cells (if any) into the statistic
+	 */
+	synchronized void drain() {
+		if (cells != null)
+			cells.drainTo(this);
+	}
+	
 	@Override
 	public synchronized void reset() {
+		if (cells != null)
+			cells.reset();
 		leapsCount = 0;
 		leapsCountSample = 0;
 		failedLeapsCount = 0;
+		skippedLeapsCount = 0;
+		skippedLeapsCountSample = 0;
 		totalTimeNs = 0;
 		totalTimeSampleNs = 0;
 		avgTimeSampleNs = 0;
@@ -52,7 +89,27 @@ public final class StatImpl implements Stat {
 		maxTimeNs = 0;
 		maxTimeSampleNs = 0;
 		maxTimeThresholdNs = 0;
-		lastAggregationTimeNs = MILLISECONDS.toNanos(currentTimeMillis());
+		histogram.reset();
+		histogramThreshold = new Histogram();
+		histogramSample = new Histogram();
+		lastAggregationTimeNs = nanoTime();
+		resetCount++;
+	}
+	
+	/**
+	 * Record measurement into all-time and aggregation period histograms
+	 */
+	void recordHistogram(long timeNs) {
+		histogram.record(timeNs);
+		histogramThreshold.record(timeNs);
+	}
+	
+	/**
+	 * Aggregation period passed over, current period histogram becomes a sample
+	 */
+	synchronized void rolloverHistogram() {
+		histogramSample = histogramThreshold;
+		histogramThreshold = new Histogram();
 	}
 	
 	@Override
@@ -72,16 +129,31 @@ public final class StatImpl implements Stat {
 	
 	@Override
 	public synchronized long getLeapsCount() {
+		drain();
 		return leapsCount;
 	}
 	
+	@Override
+	public synchronized long getMeasuredLeapsCount() {
+		drain();
+		return leapsCount - skippedLeapsCount;
+	}
+	
+	@Override
+	public synchronized boolean isSampled() {
+		drain();
+		return skippedLeapsCount > 0;
+	}
+	
 	@Override
 	public synchronized double getLeapTimeMs() {
+		drain();
 		return round(leapTimeNs);
 	}
 	
 	@Override
 	public synchronized double getMinTimeMs() {
+		drain();
 		return round(minTimeNs);
 	}
 	
@@ -92,6 +164,7 @@ public final class StatImpl implements Stat {
 	
 	@Override
 	public synchronized double getMaxTimeMs() {
+		drain();
 		return round(maxTimeNs);
 	}
 	
@@ -102,9 +175,11 @@ public final class StatImpl implements Stat {
 	
 	@Override
 	public synchronized double getAvgTimeMs() {
-		if (leapsCount == 0)
+		drain();
+		long measuredLeapsCount = leapsCount - skippedLeapsCount;
+		if (measuredLeapsCount == 0)
 			return 0;
-		return round(totalTimeNs / leapsCount);
+		return round(totalTimeNs / measuredLeapsCount);
 	}
 	
 	@Override
@@ -114,11 +189,66 @@ public final class StatImpl implements Stat {
 	
 	@Override
 	public synchronized double getTotalTimeMs() {
-		return round(totalTimeNs);
+		drain();
+		long measuredLeapsCount = leapsCount - skippedLeapsCount;
+		if (skippedLeapsCount == 0 || measuredLeapsCount == 0)
+			return round(totalTimeNs);
+		return round((double) totalTimeNs * leapsCount / measuredLeapsCount);
+	}
+	
+	@Override
+	public double getP50TimeMs() {
+		return getPercentileTimeMs(50);
+	}
+	
+	@Override
+	public double getP90TimeMs() {
+		return getPercentileTimeMs(90);
+	}
+	
+	@Override
+	public double getP99TimeMs() {
+		return getPercentileTimeMs(99);
+	}
+	
+	@Override
+	public double getP999TimeMs() {
+		return getPercentileTimeMs(99.9);
+	}
+	
+	@Override
+	public double getP50TimeSampleMs() {
+		return getPercentileTimeSampleMs(50);
+	}
+	
+	@Override
+	public double getP90TimeSampleMs() {
+		return getPercentileTimeSampleMs(90);
+	}
+	
+	@Override
+	public double getP99TimeSampleMs() {
+		return getPercentileTimeSampleMs(99);
+	}
+	
+	@Override
+	public double getP999TimeSampleMs() {
+		return getPercentileTimeSampleMs(99.9);
+	}
+	
+	@Override
+	public double getPercentileTimeMs(double percentile) {
+		return round(histogram.getValueAtPercentile(percentile));
+	}
+	
+	@Override
+	public double getPercentileTimeSampleMs(double percentile) {
+		return round(histogramSample.getValueAtPercentile(percentile));
 	}
 	
 	@Override
 	public synchronized long getFailedLeapsCount() {
+		drain();
 		return failedLeapsCount;
 	}
 	
@@ -134,12 +264,90 @@ public final class StatImpl implements Stat {
 	    long count;
 	    long max;
 	    synchronized (this) {
+	        drain();
 	        min = minTimeNs;
 	        total = totalTimeNs;
-	        count = leapsCount;
+	        count = leapsCount - skippedLeapsCount;
 	        max = maxTimeNs;
 	    }
 	    double avg = count == 0 ? 0 : round(total / count);
 	    return format("%,.2f %,.2f %,.2f", round(min), avg, round(max));
 	}
+	
+	private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+		drain();
+		out.defaultWriteObject();
+	}
+	
+	/**
+	 * Measurements recorded since the last drain, updated by many threads without contention
+	 */
+	static final class Cells {
+		private final LongAdder leapsCount = new LongAdder();
+		private final LongAdder failedLeapsCount = new LongAdder();
+		private final LongAdder skippedLeapsCount = new LongAdder();
+		private final LongAdder totalTimeNs = new LongAdder();
+		private final LongAccumulator minTimeNs = new LongAccumulator(Math::min, Long.MAX_VALUE);
+		private final LongAccumulator maxTimeNs = new LongAccumulator(Math::max, 0);
+		private volatile long leapTimeNs;
+		
+		void record(long timeNs) {
+			leapTimeNs = timeNs;
+			totalTimeNs.add(timeNs);
+			minTimeNs.accumulate(timeNs);
+			maxTimeNs.accumulate(timeNs);
+			leapsCount.increment();
+		}
+		
+		void failed() {
+			failedLeapsCount.increment();
+		}
+		
+		void skipped() {
+			skippedLeapsCount.increment();
+		}
+		
+		/**
+		 * Leaps count is drained before the values, {@link #record(long)} updates it after them, so every drained leap has its time drained as well.<br>
+		 * Leap recorded concurrently with the drain may have its time merged one drain before its count, this shifts at most one leap per recording thread
+		 * between adjacent aggregation periods (avg of the period is off by that leap time), totals, min and max are never lost.
+		 */
+		void drainTo(StatImpl stat) {
+			stat.failedLeapsCount += failedLeapsCount.sumThenReset();
+			long skipped = skippedLeapsCount.sumThenReset();
+			stat.skippedLeapsCount += skipped;
+			stat.skippedLeapsCountSample += skipped;
+			stat.leapsCount += skipped;
+			stat.leapsCountSample += skipped;
+			long leaps = leapsCount.sumThenReset();
+			if (leaps == 0)
+				return;
+			long totalNs = totalTimeNs.sumThenReset();
+			long minNs = minTimeNs.getThenReset();
+			long maxNs = maxTimeNs.getThenReset();
+			stat.leapTimeNs = leapTimeNs;
+			stat.totalTimeNs += totalNs;
+			stat.totalTimeSampleNs += totalNs;
+			if (maxNs > stat.maxTimeNs)
+				stat.maxTimeNs = maxNs;
+			if (maxNs > stat.maxTimeThresholdNs)
+				stat.maxTimeThresholdNs = maxNs;
+			if (minNs != Long.MAX_VALUE && (minNs < stat.minTimeNs || stat.minTimeNs == 0))
+				stat.minTimeNs = minNs;
+			if (minNs != Long.MAX_VALUE && (minNs < stat.minTimeThresholdNs || stat.minTimeThresholdNs == 0))
+				stat.minTimeThresholdNs = minNs;
+			stat.leapsCount += leaps;
+			stat.leapsCountSample += leaps;
+		}
+		
+		void reset() {
+			leapsCount.reset();
+			failedLeapsCount.reset();
+			skippedLeapsCount.reset();
+			totalTimeNs.reset();
+			minTimeNs.reset();
+			maxTimeNs.reset();
+			leapTimeNs = 0;
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,186 @@
+package org.droolsassert.util;
+
+import static java.lang.Long.MIN_VALUE;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import org.jfree.data.time.FixedMillisecond;
+import org.jfree.data.time.TimeSeries;
+
+/**
+ * Fixed capacity ring buffer of chart points in primitive arrays, the oldest points are overwritten.<br>
+ * Values added within the same resolution period (one second by default) are merged into single point keeping min, max, sum and count.<br>
+ * {@link TimeSeries} is built only when requested, points keep their exact time so clock adjustments never produce duplicate chart periods.
+ */
+public final class TimeSeriesBuffer {
+	
+	public static enum Aggregate {
+		Min, Max, Avg
+	}
+	
+	private final long resolutionMs;
+	private long[] times;
+	private float[] mins;
+	private float[] maxs;
+	private float[] sums;
+	private int[] counts;
+	private int head;
+	private int size;
+	private boolean wrapped;
+	
+	public TimeSeriesBuffer(int capacity) {
+		this(capacity, 1000);
+	}
+	
+	public TimeSeriesBuffer(int capacity, long resolutionMs) {
+		this.resolutionMs = resolutionMs;
+		allocate(capacity);
+	}
+	
+	private void allocate(int capacity) {
+		times = new long[capacity];
+		mins = new float[capacity];
+		maxs = new float[capacity];
+		sums = new float[capacity];
+		counts = new int[capacity];
+	}
+	
+	/**
+	 * Add the point or merge it into the last one if it falls into the same resolution period
+	 */
+	public void add(long timeMs, double value) {
+		add(timeMs, value, value, value);
+	}
+	
+	/**
+	 * Add the point of already aggregated values, so single buffer serves min, avg and max charts
+	 */
+	public synchronized void add(long timeMs, double minValue, double avgValue, double maxValue) {
+		long period = timeMs - timeMs % resolutionMs;
+		float floatMin = (float) minValue;
+		float floatAvg = (float) avgValue;
+		float floatMax = (float) maxValue;
+		if (size > 0) {
+			int last = index(size - 1);
+			if (times[last] == period) {
+				mins[last] = min(mins[last], floatMin);
+				maxs[last] = max(maxs[last], floatMax);
+				sums[last] += floatAvg;
+				counts[last]++;
+				return;
+			}
+		}
+		int index;
+		if (size < times.length) {
+			index = index(size);
+			size++;
+		} else {
+			index = head;
+			head = (head + 1) % times.length;
+			wrapped = true;
+		}
+		times[index] = period;
+		mins[index] = floatMin;
+		maxs[index] = floatMax;
+		sums[index] = floatAvg;
+		counts[index] = 1;
+	}
+	
+	/**
+	 * Change the capacity keeping the newest points
+	 */
+	public synchronized void resize(int capacity) {
+		if (capacity == times.length)
+			return;
+		int kept = min(size, capacity);
+		long[] oldTimes = times;
+		float[] oldMins = mins;
+		float[] oldMaxs = maxs;
+		float[] oldSums = sums;
+		int[] oldCounts = counts;
+		int from = size - kept;
+		int[] indexes = new int[kept];
+		for (int i = 0; i < kept; i++)
+			indexes[i] = index(from + i);
+		allocate(capacity);
+		for (int i = 0; i < kept; i++) {
+			times[i] = oldTimes[indexes[i]];
+			mins[i] = oldMins[indexes[i]];
+			maxs[i] = oldMaxs[indexes[i]];
+			sums[i] = oldSums[indexes[i]];
+			counts[i] = oldCounts[indexes[i]];
+		}
+		wrapped |= kept < size;
+		head = 0;
+		size = kept;
+	}
+	
+	public long getResolutionMs() {
+		return resolutionMs;
+	}
+	
+	public synchronized int size() {
+		return size;
+	}
+	
+	public synchronized int capacity() {
+		return times.length;
+	}
+	
+	/**
+	 * Time of the newest point or {@link Long#MIN_VALUE} if buffer is empty
+	 */
+	public synchronized long getLastTimeMs() {
+		return size == 0 ? MIN_VALUE : times[index(size - 1)];
+	}
+	
+	/**
+	 * Time since which all added points are kept, {@link Long#MIN_VALUE} if nothing was overwritten yet
+	 */
+	public synchronized long getCoveredFromMs() {
+		return wrapped && size > 0 ? times[head] : MIN_VALUE;
+	}
+	
+	public synchronized void clear() {
+		head = 0;
+		size = 0;
+		wrapped = false;
+	}
+	
+	/**
+	 * Build chart series of the point averages not older than {@code maxAgeMs} relative to the newest point
+	 */
+	public TimeSeries toTimeSeries(String name, long maxAgeMs) {
+		return toTimeSeries(name, maxAgeMs, Aggregate.Avg);
+	}
+	
+	/**
+	 * Build chart series of the points not older than {@code maxAgeMs} relative to the newest point
+	 */
+	public synchronized TimeSeries toTimeSeries(String name, long maxAgeMs, Aggregate aggregate) {
+		TimeSeries series = new TimeSeries(name);
+		if (size == 0)
+			return series;
+		long oldest = times[index(size - 1)] - maxAgeMs;
+		for (int i = 0; i < size; i++) {
+			int index = index(i);
+			if (times[index] < oldest)
+				continue;
+			switch (aggregate) {
+			case Min:
+				series.addOrUpdate(new FixedMillisecond(times[index]), mins[index]);
+				break;
+			case Max:
+				series.addOrUpdate(new FixedMillisecond(times[index]), maxs[index]);
+				break;
+			default:
+				series.addOrUpdate(new FixedMillisecond(times[index]), sums[index] / counts[index]);
+			}
+		}
+		return series;
+	}
+	
+	private int index(int i) {
+		return (head + i) % times.length;
+	}
+}
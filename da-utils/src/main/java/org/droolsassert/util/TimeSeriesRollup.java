@@ -0,0 +1,95 @@
+package org.droolsassert.util;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+import org.droolsassert.util.TimeSeriesBuffer.Aggregate;
+import org.jfree.data.time.TimeSeries;
+
+/**
+ * Chart points downsampled into resolution tiers to keep long retention at bounded memory.<br>
+ * Raw (per second) points are kept for the raw retention period, then 1-minute rollups for the minute retention period,
+ * then 1-hour rollups for the rest of retention period. Every rollup keeps min, max, avg and count of the points.<br>
+ * Chart is built from the finest tier which still covers the requested range.
+ * 
+ * @see TimeSeriesBuffer
+ */
+public final class TimeSeriesRollup {
+	
+	private static final long MINUTE_MS = MINUTES.toMillis(1);
+	private static final long HOUR_MS = HOURS.toMillis(1);
+	
+	private TimeSeriesBuffer raw;
+	private TimeSeriesBuffer minutes;
+	private TimeSeriesBuffer hours;
+	
+	public TimeSeriesRollup(long retentionMs, long rawRetentionMs, long minuteRetentionMs, long aggregationPeriodMs) {
+		configure(retentionMs, rawRetentionMs, minuteRetentionMs, aggregationPeriodMs);
+	}
+	
+	/**
+	 * Resize or create the tiers required for the retention periods, the newest points of the existing tiers are kept
+	 */
+	public synchronized void configure(long retentionMs, long rawRetentionMs, long minuteRetentionMs, long aggregationPeriodMs) {
+		raw = tier(raw, min(retentionMs, rawRetentionMs) / max(1000, aggregationPeriodMs) + 1, 1000);
+		minutes = retentionMs <= rawRetentionMs ? null : tier(minutes, min(retentionMs, minuteRetentionMs) / MINUTE_MS + 1, MINUTE_MS);
+		hours = retentionMs <= max(rawRetentionMs, minuteRetentionMs) ? null : tier(hours, retentionMs / HOUR_MS + 1, HOUR_MS);
+	}
+	
+	private static TimeSeriesBuffer tier(TimeSeriesBuffer tier, long capacity, long resolutionMs) {
+		int intCapacity = (int) min(Integer.MAX_VALUE - 8, capacity);
+		if (tier == null)
+			return new TimeSeriesBuffer(intCapacity, resolutionMs);
+		tier.resize(intCapacity);
+		return tier;
+	}
+	
+	public void add(long timeMs, double value) {
+		add(timeMs, value, value, value);
+	}
+	
+	/**
+	 * Add the point of already aggregated values
+	 * 
+	 * @see TimeSeriesBuffer#add(long, double, double, double)
+	 */
+	public synchronized void add(long timeMs, double minValue, double avgValue, double maxValue) {
+		raw.add(timeMs, minValue, avgValue, maxValue);
+		if (minutes != null)
+			minutes.add(timeMs, minValue, avgValue, maxValue);
+		if (hours != null)
+			hours.add(timeMs, minValue, avgValue, maxValue);
+	}
+	
+	public synchronized void clear() {
+		raw.clear();
+		if (minutes != null)
+			minutes.clear();
+		if (hours != null)
+			hours.clear();
+	}
+	
+	/**
+	 * Build chart series for the last {@code rangeMs} from the finest tier covering the range
+	 */
+	public synchronized TimeSeries toTimeSeries(String name, long rangeMs, Aggregate aggregate) {
+		return tier(rangeMs).toTimeSeries(name, rangeMs, aggregate);
+	}
+	
+	/**
+	 * Finest tier covering the range, the coarsest one otherwise
+	 */
+	synchronized TimeSeriesBuffer tier(long rangeMs) {
+		TimeSeriesBuffer coarsest = raw;
+		for (TimeSeriesBuffer tier : new TimeSeriesBuffer[] { raw, minutes, hours }) {
+			if (tier == null)
+				continue;
+			if (tier.getCoveredFromMs() <= raw.getLastTimeMs() - rangeMs)
+				return tier;
+			coarsest = tier;
+		}
+		return coarsest;
+	}
+}
@@ -0,0 +1,112 @@
+package org.droolsassert;
+
+import static java.lang.management.ManagementFactory.getPlatformMBeanServer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import org.droolsassert.util.AllocationStat;
+import org.droolsassert.util.PerfStat;
+import org.droolsassert.util.Stat;
+import org.junit.jupiter.api.Test;
+import org.kie.api.definition.rule.Rule;
+import org.kie.api.event.rule.AfterMatchFiredEvent;
+import org.kie.api.event.rule.BeforeMatchFiredEvent;
+import org.kie.api.runtime.KieRuntime;
+import org.kie.api.runtime.rule.Match;
+
+public class RulesProfilerAgendaEventListenerTest {
+	
+	private RulesProfilerAgendaEventListener profiler = new RulesProfilerAgendaEventListener(1000, true);
+	private KieRuntime session = proxy(KieRuntime.class, (proxy, method, args) -> null);
+	private byte[] allocated;
+	
+	@Test
+	public void testProfile() {
+		Match match = match("allocating rule");
+		profiler.beforeMatchFired(beforeEvent(match));
+		allocated = new byte[1024 * 1024];
+		profiler.afterMatchFired(afterEvent(match));
+		
+		assertEquals(1, profiler.getPerfStat().get("allocating rule").getLeapsCount());
+		assertEquals(1, profiler.getCpuStat().get("allocating rule").getLeapsCount());
+		if (profiler.isAllocatedBytesEnabled()) {
+			AllocationStat allocationStat = profiler.getAllocationStat().get("allocating rule");
+			assertEquals(1, allocationStat.getLeapsCount());
+			assertTrue(allocationStat.getMaxBytes() >= allocated.length);
+		}
+	}
+	
+	@Test
+	public void testFailedFiring() {
+		Match failing = match("failing rule");
+		Match next = match("next rule");
+		profiler.beforeMatchFired(beforeEvent(failing));
+		profiler.beforeMatchFired(beforeEvent(next));
+		profiler.afterMatchFired(afterEvent(next));
+		
+		Stat failedCpu = profiler.getCpuStat().get("failing rule");
+		assertEquals(0, failedCpu.getLeapsCount());
+		assertEquals(1, failedCpu.getFailedLeapsCount());
+		assertEquals(1, profiler.getPerfStat().get("failing rule").getFailedLeapsCount());
+		assertEquals(1, profiler.getCpuStat().get("next rule").getLeapsCount());
+	}
+	
+	@Test
+	public void testAllocationMBeans() throws Exception {
+		Match outer = match("outer rule");
+		Match inner = match("inner rule");
+		KieRuntime innerSession = proxy(KieRuntime.class, (proxy, method, args) -> null);
+		profiler.beforeMatchFired(beforeEvent(outer));
+		profiler.beforeMatchFired(beforeEvent(inner, innerSession));
+		allocated = new byte[1024];
+		profiler.afterMatchFired(afterEvent(inner, innerSession));
+		allocated = new byte[1024 * 1024];
+		profiler.afterMatchFired(afterEvent(outer));
+		
+		ObjectName aggregate = new ObjectName(PerfStat.getJmxDomain() + ":type=allocation,scope=all");
+		TabularData stats = (TabularData) getPlatformMBeanServer().getAttribute(aggregate, "Stats");
+		assertEquals(1L, stats.get(new Object[] { "outer rule" }).get("leapsCount"));
+		assertEquals(1L, stats.get(new Object[] { "inner rule" }).get("leapsCount"));
+		
+		ObjectName outerName = new ObjectName(PerfStat.getJmxDomain() + ":type=allocation,name=outer rule");
+		assertEquals(1L, getPlatformMBeanServer().getAttribute(outerName, "LeapsCount"));
+		if (profiler.isAllocatedBytesEnabled()) {
+			long innerMaxBytes = (Long) stats.get(new Object[] { "inner rule" }).get("maxBytes");
+			long outerMaxBytes = (Long) getPlatformMBeanServer().getAttribute(outerName, "MaxBytes");
+			assertTrue(innerMaxBytes >= 1024 && innerMaxBytes < allocated.length, String.valueOf(innerMaxBytes));
+			assertTrue(outerMaxBytes >= allocated.length + innerMaxBytes, String.valueOf(outerMaxBytes));
+		}
+	}
+	
+	private Match match(String ruleName) {
+		Rule rule = proxy(Rule.class, (proxy, method, args) -> "getName".equals(method.getName()) ? ruleName : "org.droolsassert");
+		return proxy(Match.class, (proxy, method, args) -> "getRule".equals(method.getName()) ? rule : null);
+	}
+	
+	private BeforeMatchFiredEvent beforeEvent(Match match) {
+		return beforeEvent(match, session);
+	}
+	
+	private BeforeMatchFiredEvent beforeEvent(Match match, KieRuntime session) {
+		return proxy(BeforeMatchFiredEvent.class, (proxy, method, args) -> "getMatch".equals(method.getName()) ? match : session);
+	}
+	
+	private AfterMatchFiredEvent afterEvent(Match match) {
+		return afterEvent(match, session);
+	}
+	
+	private AfterMatchFiredEvent afterEvent(Match match, KieRuntime session) {
+		return proxy(AfterMatchFiredEvent.class, (proxy, method, args) -> "getMatch".equals(method.getName()) ? match : session);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler);
+	}
+}
@@ -0,0 +1,46 @@
+package org.droolsassert.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class HistogramTest {
+	
+	@Test
+	public void testPercentiles() {
+		Histogram histogram = new Histogram();
+		for (long i = 1; i <= 10_000; i++)
+			histogram.record(i * 1000);
+		
+		assertEquals(10_000, histogram.getCount());
+		assertEquals(5_000_000, histogram.getValueAtPercentile(50), 5_000_000 * 0.04);
+		assertEquals(9_900_000, histogram.getValueAtPercentile(99), 9_900_000 * 0.04);
+		assertEquals(9_990_000, histogram.getValueAtPercentile(99.9), 9_990_000 * 0.04);
+		assertEquals(10_000_000, histogram.getValueAtPercentile(100), 10_000_000 * 0.04);
+		assertEquals(0, new Histogram().getValueAtPercentile(99));
+	}
+	
+	@Test
+	public void testSmallValuesAreExact() {
+		Histogram histogram = new Histogram();
+		for (long i = 0; i < 32; i++)
+			histogram.record(i);
+		assertEquals(15, histogram.getValueAtPercentile(50));
+		assertEquals(31, histogram.getValueAtPercentile(100));
+	}
+	
+	@Test
+	public void testAdd() {
+		Histogram lhs = new Histogram();
+		Histogram rhs = new Histogram();
+		for (int i = 0; i < 90; i++)
+			lhs.record(1_000);
+		for (int i = 0; i < 10; i++)
+			rhs.record(1_000_000);
+		lhs.add(rhs);
+		
+		assertEquals(100, lhs.getCount());
+		assertEquals(1_000, lhs.getValueAtPercentile(90), 1_000 * 0.04);
+		assertEquals(1_000_000, lhs.getValueAtPercentile(91), 1_000_000 * 0.04);
+	}
+}
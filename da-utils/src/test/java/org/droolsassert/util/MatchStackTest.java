@@ -0,0 +1,83 @@
+package org.droolsassert.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.kie.api.runtime.rule.Match;
+
+public class MatchStackTest {
+	
+	private MatchStack<String> stack = new MatchStack<>();
+	private List<String> stopped = new ArrayList<>();
+	private List<String> discarded = new ArrayList<>();
+	
+	@Test
+	public void testNestedMatches() {
+		Match outer = match();
+		Match inner = match();
+		stack.push(outer, "session1", "outer", 1, this::discarded);
+		stack.push(inner, "session2", "inner", 2, this::discarded);
+		stack.pop(inner, this::stopped, this::discarded);
+		stack.pop(outer, this::stopped, this::discarded);
+		
+		assertEquals(List.of("inner:2", "outer:1"), stopped);
+		assertEquals(List.of(), discarded);
+		assertEquals(0, stack.depth());
+	}
+	
+	@Test
+	public void testFailedInnerMatchIsDiscardedWhenOuterCompletes() {
+		Match outer = match();
+		stack.push(outer, "session1", "outer", 1, this::discarded);
+		stack.push(match(), "session2", "failed", 2, this::discarded);
+		stack.pop(outer, this::stopped, this::discarded);
+		
+		assertEquals(List.of("outer:1"), stopped);
+		assertEquals(List.of("failed:2"), discarded);
+		assertEquals(0, stack.depth());
+	}
+	
+	@Test
+	public void testFailedMatchIsDiscardedWhenSessionFiresNextMatch() {
+		stack.push(match(), "session1", "failed", 1, this::discarded);
+		stack.push(match(), "session2", "nested in failed", 2, this::discarded);
+		Match next = match();
+		stack.push(next, "session1", "next", 3, this::discarded);
+		
+		assertEquals(List.of("nested in failed:2", "failed:1"), discarded);
+		assertEquals(1, stack.depth());
+		stack.pop(next, this::stopped, this::discarded);
+		assertEquals(List.of("next:3"), stopped);
+	}
+	
+	@Test
+	public void testUnknownMatchIsIgnored() {
+		Match outer = match();
+		stack.push(outer, "session1", "outer", 1, this::discarded);
+		stack.pop(match(), this::stopped, this::discarded);
+		
+		assertEquals(1, stack.depth());
+		assertEquals(List.of(), stopped);
+		assertEquals(List.of(), discarded);
+		
+		stack.clear(this::discarded);
+		assertEquals(List.of("outer:1"), discarded);
+		assertEquals(0, stack.depth());
+	}
+	
+	private void stopped(String state, long start) {
+		stopped.add(state + ":" + start);
+	}
+	
+	private void discarded(String state, long start) {
+		discarded.add(state + ":" + start);
+	}
+	
+	private static Match match() {
+		return (Match) Proxy.newProxyInstance(Match.class.getClassLoader(), new Class<?>[] { Match.class }, (proxy, method, args) -> null);
+	}
+}
@@ -0,0 +1,47 @@
+package org.droolsassert.util;
+
+import static java.lang.System.currentTimeMillis;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createDirectory;
+import static java.nio.file.Files.createTempDirectory;
+import static java.nio.file.Files.exists;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+public class OpenMetricsExporterTest {
+	
+	@Test
+	public void testScrape() {
+		PerfStat perf = new PerfStat("exported.type", "exported \"name\"");
+		perf.record(1_500_000);
+		perf.record(3_000_000);
+		
+		String metrics = new String(new OpenMetricsExporter().scrape(), UTF_8);
+		String labels = "{type=\"exported.type\",name=\"exported \\\"name\\\"\"";
+		assertTrue(metrics.contains("perfstat_leaps_total" + labels + "} 2\n"), metrics);
+		assertTrue(metrics.contains("perfstat_failed_leaps_total" + labels + "} 0\n"), metrics);
+		assertTrue(metrics.contains("perfstat_leap_seconds_bucket" + labels + ",le=\"0.000001023\"} 0\n"), metrics);
+		assertTrue(metrics.contains("perfstat_leap_seconds_bucket" + labels + ",le=\"0.002097151\"} 1\n"), metrics);
+		assertTrue(metrics.contains("perfstat_leap_seconds_bucket" + labels + ",le=\"+Inf\"} 2\n"), metrics);
+		assertTrue(metrics.contains("perfstat_leap_seconds_sum" + labels + "} 0.0045\n"), metrics);
+		assertTrue(metrics.contains("perfstat_time_seconds_total" + labels + "} 0.0045\n"), metrics);
+		assertTrue(metrics.endsWith("# EOF\n"), metrics);
+	}
+	
+	@Test
+	public void testFileExportSurvivesFailure() throws Exception {
+		Path directory = createTempDirectory("metrics").resolve("missing");
+		Path file = directory.resolve("perfstat.prom");
+		try (OpenMetricsExporter exporter = new OpenMetricsExporter().startFileExport(file, 10)) {
+			Thread.sleep(50);
+			createDirectory(directory);
+			long deadline = currentTimeMillis() + 5000;
+			while (!exists(file) && currentTimeMillis() < deadline)
+				Thread.sleep(10);
+			assertTrue(exists(file));
+		}
+	}
+}
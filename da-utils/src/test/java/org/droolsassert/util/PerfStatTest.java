@@ -1,7 +1,19 @@
 package org.droolsassert.util;
 
 import static java.lang.System.currentTimeMillis;
+import static java.lang.System.nanoTime;
 import static java.lang.System.out;
+import static java.lang.management.ManagementFactory.getPlatformMBeanServer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
 
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -23,4 +35,80 @@ public class PerfStatTest {
 		
 		out.printf("cycle time %f", ((currentTimeMillis() - start) / cycles)); // ~0.000160 ms
 	}
+	
+	@Test
+	@Disabled("for manual run")
+	public void testStartNs() {
+		float cycles = 1_000_000;
+		PerfStat domainPerf = new PerfStat("domain.under.test.ns");
+		
+		long start = currentTimeMillis();
+		for (int i = 0; i < cycles; i++) {
+			long startNs = domainPerf.startNs();
+			domainPerf.stop(startNs);
+		}
+		
+		out.printf("cycle time %f", ((currentTimeMillis() - start) / cycles));
+	}
+	
+	@Test
+	public void testSampling() {
+		PerfStat domainPerf = new PerfStat("domain.under.test.sampled").setSamplingRate(10);
+		for (int i = 0; i < 1000; i++) {
+			long startNs = domainPerf.startNs();
+			domainPerf.stop(startNs);
+		}
+		
+		Stat stat = domainPerf.getStat();
+		assertEquals(1000, stat.getLeapsCount());
+		assertEquals(100, stat.getMeasuredLeapsCount());
+		assertTrue(stat.isSampled());
+		
+		domainPerf.reset();
+		assertFalse(stat.isSampled());
+	}
+	
+	@Test
+	public void testAggregateMBean() throws Exception {
+		PerfStat aPerf = new PerfStat("aggregated.type", "a");
+		new PerfStat("aggregated.type", "b");
+		aPerf.stop(aPerf.startNs());
+		
+		ObjectName objName = new ObjectName(PerfStat.getJmxDomain() + ":type=aggregated.type,scope=all");
+		TabularData stats = (TabularData) getPlatformMBeanServer().getAttribute(objName, "Stats");
+		assertEquals(2, stats.size());
+		assertEquals(1L, stats.get(new Object[] { "a" }).get("leapsCount"));
+		assertEquals(0L, stats.get(new Object[] { "b" }).get("leapsCount"));
+	}
+	
+	@Test
+	@Disabled("for manual run")
+	public void testContention() throws Exception {
+		int threads = Runtime.getRuntime().availableProcessors();
+		int cycles = 1_000_000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (boolean striped : new boolean[] { false, true }) {
+				PerfStat.setDefaultStriped(striped);
+				PerfStat domainPerf = new PerfStat("domain.under.contention", striped ? "striped" : "monitor");
+				CountDownLatch done = new CountDownLatch(threads);
+				long start = nanoTime();
+				for (int t = 0; t < threads; t++) {
+					executor.execute(() -> {
+						for (int i = 0; i < cycles; i++) {
+							domainPerf.start();
+							domainPerf.stop();
+						}
+						done.countDown();
+					});
+				}
+				done.await();
+				out.printf("%s, %d threads: cycle time %f ms, leaps %d%n", domainPerf.getName(), threads,
+						(nanoTime() - start) / 1_000_000.0 / cycles, domainPerf.getStat().getLeapsCount());
+			}
+		} finally {
+			PerfStat.setDefaultStriped(false);
+			executor.shutdown();
+		}
+	}
 }
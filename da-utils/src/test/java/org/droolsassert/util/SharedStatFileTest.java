@@ -0,0 +1,85 @@
+package org.droolsassert.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.commons.lang3.StringUtils.repeat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SharedStatFileTest {
+	
+	@TempDir
+	File tempDir;
+	
+	@Test
+	public void testPublishDeltas() {
+		File file = new File(tempDir, "perfstat");
+		SharedStatFile publisher = new SharedStatFile(file, 16);
+		SharedStatFile reader = new SharedStatFile(file, 1024);
+		assertEquals(16, reader.getSlots());
+		
+		PerfStat perf = new PerfStat("shared.type", "shared");
+		perf.record(1_000_000);
+		perf.record(3_000_000);
+		publisher.publishAll();
+		publisher.publishAll();
+		
+		Stat stat = reader.getPerfStat().get("shared.type").get("shared");
+		assertEquals(2, stat.getLeapsCount());
+		assertEquals(4, stat.getTotalTimeMs());
+		assertEquals(1, stat.getMinTimeMs());
+		assertEquals(3, stat.getMaxTimeMs());
+		
+		perf.reset();
+		perf.record(2_000_000);
+		publisher.publishAll();
+		
+		stat = reader.getPerfStat().get("shared.type").get("shared");
+		assertEquals(3, stat.getLeapsCount());
+		assertEquals(6, stat.getTotalTimeMs());
+	}
+	
+	@Test
+	public void testReset() {
+		File file = new File(tempDir, "perfstat");
+		SharedStatFile publisher = new SharedStatFile(file, 16);
+		SharedStatFile reader = new SharedStatFile(file, 16);
+		
+		PerfStat perf = new PerfStat("reset.type", "reset");
+		perf.record(1_000_000);
+		publisher.publishAll();
+		assertEquals(1, reader.getPerfStat().get("reset.type").get("reset").getLeapsCount());
+		
+		reader.reset();
+		assertEquals(0, reader.getUsedSlots());
+		assertTrue(reader.getPerfStat().isEmpty());
+		
+		perf.record(2_000_000);
+		publisher.publishAll();
+		Stat stat = reader.getPerfStat().get("reset.type").get("reset");
+		assertEquals(1, stat.getLeapsCount());
+		assertEquals(2, stat.getTotalTimeMs());
+		assertEquals(1, stat.getPeersCount());
+	}
+	
+	@Test
+	public void testLongKeys() {
+		String name = repeat("\u00e9", 200);
+		byte[] key = SharedStatFile.keyBytes(name + "1");
+		assertTrue(key.length <= 196);
+		assertTrue(new String(key, UTF_8).startsWith(repeat("\u00e9", 81) + "~"), new String(key, UTF_8));
+		assertFalse(Arrays.equals(key, SharedStatFile.keyBytes(name + "2")));
+		
+		SharedStatFile sharedFile = new SharedStatFile(new File(tempDir, "perfstat"), 16);
+		new PerfStat("long.type", name + "1").record(1_000_000);
+		new PerfStat("long.type", name + "2").record(1_000_000);
+		sharedFile.publishAll();
+		assertEquals(2, sharedFile.getPerfStat().get("long.type").size());
+	}
+}
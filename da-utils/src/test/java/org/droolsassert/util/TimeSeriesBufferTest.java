@@ -0,0 +1,132 @@
+package org.droolsassert.util;
+
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Instant;
+import java.util.TimeZone;
+
+import org.droolsassert.util.TimeSeriesBuffer.Aggregate;
+import org.jfree.data.time.TimeSeries;
+import org.junit.jupiter.api.Test;
+
+public class TimeSeriesBufferTest {
+	
+	@Test
+	public void testRingBuffer() {
+		TimeSeriesBuffer buffer = new TimeSeriesBuffer(3);
+		buffer.add(1_000, 1);
+		buffer.add(1_500, 2);
+		assertEquals(1, buffer.size());
+		assertEquals(1, buffer.toTimeSeries("test", 0, Aggregate.Min).getValue(0).doubleValue());
+		assertEquals(1.5, buffer.toTimeSeries("test", 0, Aggregate.Avg).getValue(0).doubleValue());
+		assertEquals(2, buffer.toTimeSeries("test", 0, Aggregate.Max).getValue(0).doubleValue());
+		
+		for (int i = 2; i <= 5; i++)
+			buffer.add(i * 1_000, i);
+		assertEquals(3, buffer.size());
+		
+		TimeSeries series = buffer.toTimeSeries("test", 60_000);
+		assertEquals(3, series.getItemCount());
+		assertEquals(3, series.getValue(0).doubleValue());
+		assertEquals(5, series.getValue(2).doubleValue());
+		
+		assertEquals(2, buffer.toTimeSeries("test", 1_000).getItemCount());
+	}
+	
+	@Test
+	public void testResize() {
+		TimeSeriesBuffer buffer = new TimeSeriesBuffer(5);
+		for (int i = 1; i <= 5; i++)
+			buffer.add(i * 1_000, i);
+		buffer.resize(2);
+		assertEquals(2, buffer.size());
+		assertEquals(4, buffer.toTimeSeries("test", 60_000).getValue(0).doubleValue());
+		
+		buffer.resize(4);
+		buffer.add(6_000, 6);
+		assertEquals(3, buffer.size());
+		assertEquals(6, buffer.toTimeSeries("test", 60_000).getValue(2).doubleValue());
+	}
+	
+	@Test
+	public void testAggregatedPoints() {
+		TimeSeriesBuffer buffer = new TimeSeriesBuffer(5);
+		buffer.add(1_000, 1, 2, 6);
+		buffer.add(1_500, 0.5, 4, 5);
+		buffer.add(2_000, 3, 3, 3);
+		
+		assertEquals(2, buffer.size());
+		assertEquals(0.5, buffer.toTimeSeries("test", 60_000, Aggregate.Min).getValue(0).doubleValue());
+		assertEquals(3, buffer.toTimeSeries("test", 60_000, Aggregate.Avg).getValue(0).doubleValue());
+		assertEquals(6, buffer.toTimeSeries("test", 60_000, Aggregate.Max).getValue(0).doubleValue());
+		assertEquals(3, buffer.toTimeSeries("test", 60_000, Aggregate.Max).getValue(1).doubleValue());
+	}
+	
+	@Test
+	public void testClockStepBack() {
+		TimeSeriesBuffer buffer = new TimeSeriesBuffer(5);
+		buffer.add(5_000, 1);
+		buffer.add(3_000, 2);
+		buffer.add(5_000, 3);
+		assertEquals(3, buffer.size());
+		
+		TimeSeries series = buffer.toTimeSeries("test", 60_000);
+		assertEquals(2, series.getItemCount());
+		assertEquals(3_000, series.getTimePeriod(0).getFirstMillisecond());
+		assertEquals(3, series.getValue(1).doubleValue());
+	}
+	
+	@Test
+	public void testDaylightSavingFallBack() {
+		TimeZone timeZone = TimeZone.getDefault();
+		TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+		try {
+			TimeSeriesBuffer buffer = new TimeSeriesBuffer(5, HOURS.toMillis(1));
+			long fallBack = Instant.parse("2026-10-25T01:00:00Z").toEpochMilli();
+			buffer.add(fallBack - MINUTES.toMillis(30), 1);
+			buffer.add(fallBack + MINUTES.toMillis(30), 2);
+			
+			TimeSeries series = buffer.toTimeSeries("test", HOURS.toMillis(10));
+			assertEquals(2, series.getItemCount());
+			assertEquals(1, series.getValue(0).doubleValue());
+			assertEquals(2, series.getValue(1).doubleValue());
+		} finally {
+			TimeZone.setDefault(timeZone);
+		}
+	}
+	
+	@Test
+	public void testRollup() {
+		TimeSeriesRollup rollup = new TimeSeriesRollup(HOURS.toMillis(48), MINUTES.toMillis(10), HOURS.toMillis(2), 1000);
+		assertEquals(1000, rollup.tier(0).getResolutionMs());
+		
+		long start = HOURS.toMillis(1000);
+		for (long t = 0; t < HOURS.toMillis(5); t += 5_000)
+			rollup.add(start + t, t % 60_000 == 0 ? 10 : 1);
+		
+		assertEquals(1000, rollup.tier(MINUTES.toMillis(5)).getResolutionMs());
+		assertEquals(60_000, rollup.tier(HOURS.toMillis(1)).getResolutionMs());
+		assertEquals(3_600_000, rollup.tier(HOURS.toMillis(4)).getResolutionMs());
+		
+		TimeSeries minutes = rollup.toTimeSeries("test", HOURS.toMillis(1), Aggregate.Max);
+		assertEquals(61, minutes.getItemCount());
+		assertEquals(10, minutes.getValue(0).doubleValue());
+		assertEquals(1.75, rollup.toTimeSeries("test", HOURS.toMillis(1), Aggregate.Avg).getValue(0).doubleValue());
+		assertEquals(5, rollup.toTimeSeries("test", HOURS.toMillis(10), Aggregate.Min).getItemCount());
+	}
+	
+	@Test
+	public void testRollupTiers() {
+		TimeSeriesRollup rollup = new TimeSeriesRollup(HOURS.toMillis(1), HOURS.toMillis(1), HOURS.toMillis(24), 1000);
+		rollup.add(0, 1);
+		assertEquals(1000, rollup.tier(HOURS.toMillis(10)).getResolutionMs());
+		
+		rollup.configure(HOURS.toMillis(48), MINUTES.toMillis(1), HOURS.toMillis(24), 1000);
+		for (long t = 1000; t < MINUTES.toMillis(3); t += 1000)
+			rollup.add(t, 1);
+		assertEquals(60_000, rollup.tier(MINUTES.toMillis(2)).getResolutionMs());
+		assertEquals(3, rollup.toTimeSeries("test", MINUTES.toMillis(2), Aggregate.Avg).getItemCount());
+	}
+}
@@ -2,27 +2,34 @@ package org.droolsassert;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Maps.filterValues;
+import static com.google.common.collect.Maps.transformValues;
 import static java.lang.Long.MAX_VALUE;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Runtime.getRuntime;
 import static java.lang.String.format;
+import static java.lang.System.nanoTime;
 import static java.lang.System.out;
+import static java.lang.Thread.currentThread;
 import static java.util.Arrays.asList;
 import static java.util.Arrays.stream;
 import static java.util.Collections.sort;
-import static java.util.Objects.nonNull;
+import static java.util.Collections.synchronizedMap;
+import static java.util.Collections.unmodifiableMap;
 import static java.util.concurrent.TimeUnit.DAYS;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 import static org.apache.commons.collections4.CollectionUtils.subtract;
 import static org.apache.commons.io.FileUtils.forceMkdir;
 import static org.apache.commons.lang3.ObjectUtils.defaultIfNull;
-import static org.apache.commons.lang3.ObjectUtils.firstNonNull;
 import static org.apache.commons.lang3.StringUtils.EMPTY;
 import static org.apache.commons.lang3.StringUtils.LF;
 import static org.apache.commons.lang3.StringUtils.SPACE;
 import static org.apache.commons.lang3.StringUtils.join;
 import static org.apache.commons.lang3.exception.ExceptionUtils.getStackTrace;
-import static org.apache.commons.lang3.math.NumberUtils.INTEGER_ZERO;
 import static org.droolsassert.DroolsAssertUtils.firstNonEmpty;
 import static org.droolsassert.DroolsAssertUtils.formatTime;
 import static org.droolsassert.DroolsAssertUtils.getExpectedCount;
@@ -45,34 +52,51 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.drools.base.definitions.rule.impl.RuleImpl;
 import org.drools.core.common.InternalFactHandle;
+import org.drools.core.time.TimerService;
 import org.droolsassert.jbehave.DroolsAssertSteps;
 import org.droolsassert.jbehave.DroolsSessionProxy;
 import org.droolsassert.listeners.ActivationReportBuilder;
 import org.droolsassert.listeners.DroolsassertListener;
+import org.droolsassert.listeners.FlightRecorderListener;
 import org.droolsassert.listeners.LoggingListener;
+import org.droolsassert.listeners.PerformanceBaselineBuilder;
 import org.droolsassert.listeners.StateTransitionBuilder;
+import org.droolsassert.util.Stat;
 import org.junit.jupiter.api.extension.AfterEachCallback;
 import org.junit.jupiter.api.extension.BeforeEachCallback;
 import org.junit.jupiter.api.extension.ExtensionContext;
@@ -82,6 +106,8 @@ import org.kie.api.KieBaseConfiguration;
 import org.kie.api.KieServices;
 import org.kie.api.builder.model.KieModuleModel;
 import org.kie.api.command.Command;
+import org.kie.api.definition.KiePackage;
+import org.kie.api.definition.rule.Rule;
 import org.kie.api.event.process.ProcessEventListener;
 import org.kie.api.event.rule.AgendaEventListener;
 import org.kie.api.event.rule.BeforeMatchFiredEvent;
@@ -105,6 +131,7 @@ import org.springframework.core.io.Resource;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.util.PathMatcher;
 
+
 /**
  * JUnit <a href="https://junit.org/junit5/docs/current/user-guide/#extensions">extension</a> for declarative drools tests.
  * 
@@ -181,24 +208,61 @@ import org.springframework.util.PathMatcher;
 public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, TestExecutionExceptionHandler {
 	private static final String parameterizedScenarioNameRegex = ".*?\\[(\\d+).*";
 	protected static final PathMatcher nameMatcher = new AntPathMatcher("\n");
-	protected static Map<DroolsSession, KieBase> kieBases = new WeakHashMap<>();
+	protected static Map<DroolsSession, KieBase> kieBases = synchronizedMap(new WeakHashMap<>());
+	/**
+	 * Knowledge bases by the content they are built from, released with the last session meta data or session which uses it
+	 */
+	private static final ConcurrentMap<String, KieBaseReference> kieBasesByContent = new ConcurrentHashMap<>();
+	private static final ReferenceQueue<KieBase> releasedKieBases = new ReferenceQueue<>();
+	/**
+	 * Knowledge bases being built by the content, concurrent callers with the same content wait for the first one
+	 */
+	private static final ConcurrentMap<String, FutureTask<KieBase>> kieBasesInBuild = new ConcurrentHashMap<>();
+	protected static final ConcurrentMap<String, SessionPool> sessionPools = new ConcurrentHashMap<>();
+	/**
+	 * Rules statistic prefixes taken by the sessions in use, reused so the number of statistic types is bounded by the tests running in parallel
+	 */
+	private static final BitSet sessionPrefixes = new BitSet();
 	
 	protected DroolsSession droolsSessionMeta;
 	protected TestRules testRulesMeta;
+	protected PerformanceBudget performanceBudgetMeta;
+	protected long fireAllRulesTimeNs;
 	
 	protected KieSession session;
 	protected Agenda agenda;
 	protected SessionPseudoClock clock;
 	protected KieResources kieResources = KieServices.get().getResources();
+	/**
+	 * Activations count by rule name, view of {@link #activationCounters} writing through to the counters
+	 */
 	protected Map<String, Integer> activations;
-	protected Map<String, Integer> activationsSnapshot;
+	protected Map<String, ActivationCounter> activationCounters;
+	/**
+	 * @deprecated read-only view of {@link #activationCounters}, use {@link #getActivationMeta(String)}
+	 */
+	@Deprecated
 	protected Map<String, RuleImpl> activationsMeta;
+	/**
+	 * @deprecated read-only view of the activations count at the last check point, use {@link #checkpointActivations()}
+	 */
+	@Deprecated
+	protected Map<String, Integer> activationsSnapshot;
+	protected Map<RuleImpl, ActivationCounter> ruleActivationCounters;
+	protected List<ActivationCounter> dirtyActivationCounters;
+	protected long totalActivations;
 	protected Set<String> ignored;
+	protected Set<String> ignoredNames;
+	protected List<String> ignoredPatterns;
+	protected Map<String, Boolean> eligibleForAssertion;
 	protected Map<Object, Integer> factsHistory;
+	protected FactsIndex factsIndex;
 	protected RulesChronoAgendaEventListener rulesChrono;
+	protected String sessionPrefix;
 	protected List<DroolsassertListener> listeners;
 	
 	private List<Throwable> errors = new ArrayList<>();
+	private int sessionPrefixIndex = -1;
 	
 	/**
 	 * Initializes new drools session based on meta data.<br>
@@ -213,12 +277,22 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 		agenda = session.getAgenda();
 		clock = session.getSessionClock();
 		session.addEventListener(new ActivationsTracker());
+		session.addEventListener(factsIndex = new FactsIndex());
 		if (this.droolsSessionMeta.keepFactsHistory())
 			session.addEventListener(new FactsHistoryTracker());
+		if (sessionPrefixIndex < 0) {
+			sessionPrefixIndex = acquireSessionPrefix();
+			sessionPrefix = "droolsassert" + sessionPrefixIndex;
+		}
 		rulesChrono = rulesChrono();
-		activations = new LinkedHashMap<>();
-		activationsSnapshot = new LinkedHashMap<>();
-		activationsMeta = new LinkedHashMap<>();
+		activationCounters = new LinkedHashMap<>();
+		ruleActivationCounters = new IdentityHashMap<>();
+		dirtyActivationCounters = new ArrayList<>();
+		totalActivations = 0;
+		fireAllRulesTimeNs = 0;
+		activations = new ActivationsView();
+		activationsMeta = unmodifiableMap(transformValues(activationCounters, counter -> counter.rule));
+		activationsSnapshot = unmodifiableMap(filterValues(transformValues(activationCounters, counter -> counter.checkpoint), checkpoint -> checkpoint > 0));
 		initializeIgnoredActivations();
 		factsHistory = new IdentityHashMap<>();
 		
@@ -231,10 +305,34 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 		LocalDateTime localDateTime = testRulesMeta != null && !testRulesMeta.givenTime().equals(EMPTY)
 				? parseLocalDateTime(testRulesMeta.givenTime())
 				: LocalDate.now().atStartOfDay();
-		clock.advanceTime(localDateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), MILLISECONDS);
+		clock.advanceTime(localDateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() - clock.getCurrentTime(), MILLISECONDS);
 	}
 	
 	protected KieSession newSession(DroolsSession droolsSessionMeta) {
+		if (droolsSessionMeta.sessionPool() > 0)
+			return sessionPool(droolsSessionMeta).acquire(() -> createSession(droolsSessionMeta));
+		return createSession(droolsSessionMeta);
+	}
+	
+	/**
+	 * Pool shared by the session meta data with the same content, disposed with its statistic logged on VM shutdown
+	 */
+	protected SessionPool sessionPool(DroolsSession droolsSessionMeta) {
+		String key = kieBaseKey(droolsSessionMeta) + LF + Arrays.toString(droolsSessionMeta.sessionProperties()) + LF + Arrays.toString(droolsSessionMeta.sessionPropertySource())
+				+ LF + droolsSessionMeta.sessionPool();
+		return sessionPools.computeIfAbsent(key, k -> {
+			SessionPool sessionPool = new SessionPool(droolsSessionMeta.sessionPool());
+			boolean log = droolsSessionMeta.log();
+			getRuntime().addShutdownHook(new Thread(() -> {
+				sessionPool.close();
+				if (log)
+					out.println(sessionPool);
+			}, "SessionPool shutdown"));
+			return sessionPool;
+		});
+	}
+	
+	protected KieSession createSession(DroolsSession droolsSessionMeta) {
 		try {
 			return kieBase(droolsSessionMeta).newKieSession(sessionConfiguration(droolsSessionMeta), null);
 		} catch (IOException e) {
@@ -242,33 +340,121 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 		}
 	}
 	
+	/**
+	 * Knowledge base for the session meta data.<br>
+	 * Each distinct content is compiled exactly once while in use, different knowledge bases are compiled concurrently.
+	 * 
+	 * @see #kieBaseKey(DroolsSession)
+	 */
 	protected KieBase kieBase(DroolsSession droolsSessionMeta) throws IOException {
-		if (kieBases.containsKey(droolsSessionMeta))
-			return kieBases.get(droolsSessionMeta);
+		KieBase kieBase = kieBases.get(droolsSessionMeta);
+		if (kieBase != null)
+			return kieBase;
 		
-		synchronized (DroolsAssert.class) {
-			KieHelper kieHelper = new KieHelper();
-			kieHelper.setKieModuleModel(kieModule(builderConfiguration(droolsSessionMeta)));
-			
-			String[] source = droolsSessionMeta.source();
-			for (Resource resource : getResources(source.length == 0, droolsSessionMeta.logResources(), firstNonEmpty(droolsSessionMeta.value(), droolsSessionMeta.resources())))
-				kieHelper.addResource(kieResources.newInputStreamResource(resource.getInputStream()), determineResourceType(resource.getFilename()));
-			
-			if (source.length == 1) {
-				kieHelper.addContent(source[0], DRL);
-			} else {
-				checkArgument(source.length % 2 == 0, "Unexpected number of arguments for @DroolsSession.source");
-				for (int i = 0; i < source.length; i = i + 2)
-					kieHelper.addContent(source[i + 1], determineResourceType(source[i]));
+		String key = kieBaseKey(droolsSessionMeta);
+		kieBase = builtKieBase(key);
+		if (kieBase == null)
+			kieBase = buildKieBaseOnce(key, droolsSessionMeta);
+		kieBases.put(droolsSessionMeta, kieBase);
+		return kieBase;
+	}
+	
+	private KieBase buildKieBaseOnce(String key, DroolsSession droolsSessionMeta) throws IOException {
+		FutureTask<KieBase> newBuild = new FutureTask<>(() -> {
+			KieBase kieBase = builtKieBase(key);
+			if (kieBase == null) {
+				kieBase = newKieBase(droolsSessionMeta);
+				kieBasesByContent.put(key, new KieBaseReference(key, kieBase));
 			}
-			
-			KieBase kieBase = kieHelper.build(baseConfiguration(droolsSessionMeta));
-			
-			kieBases.put(droolsSessionMeta, kieBase);
 			return kieBase;
+		});
+		FutureTask<KieBase> build = kieBasesInBuild.putIfAbsent(key, newBuild);
+		if (build == null) {
+			build = newBuild;
+			try {
+				newBuild.run();
+			} finally {
+				kieBasesInBuild.remove(key, newBuild);
+			}
+		}
+		
+		try {
+			return build.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw new DroolsAssertException("Cannot build knowledge base", e.getCause());
+		} catch (InterruptedException e) {
+			currentThread().interrupt();
+			throw new DroolsAssertException("Interrupted while waiting for knowledge base", e);
+		}
+	}
+	
+	/**
+	 * Knowledge base built from the content if it is still in use, released ones are dropped
+	 */
+	private static KieBase builtKieBase(String key) {
+		for (Reference<? extends KieBase> released = releasedKieBases.poll(); released != null; released = releasedKieBases.poll())
+			kieBasesByContent.remove(((KieBaseReference) released).key, released);
+		KieBaseReference reference = kieBasesByContent.get(key);
+		return reference == null ? null : reference.get();
+	}
+	
+	private static final class KieBaseReference extends WeakReference<KieBase> {
+		private final String key;
+		
+		private KieBaseReference(String key, KieBase kieBase) {
+			super(kieBase, releasedKieBases);
+			this.key = key;
 		}
 	}
 	
+	/**
+	 * Session meta data the knowledge base is built from, equal for the different meta data instances (jbehave stories etc.) with the same resources and properties
+	 */
+	protected String kieBaseKey(DroolsSession droolsSessionMeta) {
+		return Stream.of(droolsSessionMeta.value(), droolsSessionMeta.resources(), droolsSessionMeta.source(),
+				droolsSessionMeta.baseProperties(), droolsSessionMeta.basePropertySource(), droolsSessionMeta.builderProperties(), droolsSessionMeta.builderPropertySource())
+				.map(Arrays::toString)
+				.collect(joining("\n"));
+	}
+	
+	protected KieBase newKieBase(DroolsSession droolsSessionMeta) throws IOException {
+		String[] source = droolsSessionMeta.source();
+		List<Resource> resources = getResources(source.length == 0, droolsSessionMeta.logResources(), firstNonEmpty(droolsSessionMeta.value(), droolsSessionMeta.resources()));
+		Properties builderProperties = builderConfiguration(droolsSessionMeta);
+		
+		if (!KieBaseCache.enabled())
+			return buildKieBase(droolsSessionMeta, resources, builderProperties);
+		
+		KieBaseCache cache = KieBaseCache.instance();
+		String key = cache.key(resources, source, builderProperties, baseProperties(droolsSessionMeta));
+		return cache.computeIfAbsent(key, baseConfiguration(droolsSessionMeta), () -> buildKieBase(droolsSessionMeta, resources, builderProperties), droolsSessionMeta.log());
+	}
+	
+	protected KieBase buildKieBase(DroolsSession droolsSessionMeta, List<Resource> resources, Properties builderProperties) throws IOException {
+		KieHelper kieHelper = new KieHelper();
+		kieHelper.setKieModuleModel(kieModule(builderProperties));
+		
+		for (Resource resource : resources)
+			kieHelper.addResource(kieResources.newInputStreamResource(resource.getInputStream()), determineResourceType(resource.getFilename()));
+		
+		String[] source = droolsSessionMeta.source();
+		if (source.length == 1) {
+			kieHelper.addContent(source[0], DRL);
+		} else {
+			checkArgument(source.length % 2 == 0, "Unexpected number of arguments for @DroolsSession.source");
+			for (int i = 0; i < source.length; i = i + 2)
+				kieHelper.addContent(source[i + 1], determineResourceType(source[i]));
+		}
+		
+		return kieHelper.build(baseConfiguration(droolsSessionMeta));
+	}
+	
 	protected KieModuleModel kieModule(Properties properties) throws IOException {
 		KieModuleModel kmm = KieServices.Factory.get().newKieModuleModel();
 		for (Entry<Object, Object> property : properties.entrySet()) {
@@ -287,6 +473,14 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 		return checkNotNull(session.getEntryPoint(entryPoint), "No entry point instance associated with %s", entryPoint);
 	}
 	
+	/**
+	 * Entry point the fact handle belongs to, {@code null} if unknown
+	 */
+	protected final EntryPoint getEntryPoint(FactHandle factHandle) {
+		String entryPoint = ((InternalFactHandle) factHandle).getEntryPointName();
+		return entryPoint == null ? null : session.getEntryPoint(entryPoint);
+	}
+	
 	/**
 	 * Returns an object of the specified class.
 	 *
@@ -305,7 +499,8 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	 * Returns all objects of the class if found
 	 */
 	public <T> List<T> getObjects(Class<T> clazz) {
-		return getObjects(obj -> clazz.isInstance(obj));
+		deleteExpiredEvents();
+		return factsIndex.getObjects(clazz);
 	}
 	
 	/**
@@ -313,10 +508,7 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	 */
 	public <T> List<T> getObjects(Class<T> clazz, Predicate<T> filter) {
 		deleteExpiredEvents();
-		return session.getEntryPoints().stream()
-				.flatMap(e -> e.getObjects(obj -> clazz.isInstance(obj)).stream())
-				.map(obj -> clazz.cast(obj))
-				.filter(filter).collect(toList());
+		return factsIndex.getObjects(clazz).stream().filter(filter).collect(toList());
 	}
 	
 	/**
@@ -325,7 +517,7 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	@SuppressWarnings("unchecked")
 	public <T> List<T> getObjects(ObjectFilter filter) {
 		deleteExpiredEvents();
-		return (List<T>) session.getEntryPoints().stream().flatMap(e -> e.getObjects(filter).stream()).collect(toList());
+		return (List<T>) factsIndex.getObjects().stream().filter(filter::accept).collect(toList());
 	}
 	
 	/**
@@ -334,15 +526,11 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	@SuppressWarnings("unchecked")
 	public <T> List<T> getObjects() {
 		deleteExpiredEvents();
-		return (List<T>) session.getEntryPoints().stream().flatMap(e -> e.getObjects().stream()).collect(toList());
+		return (List<T>) factsIndex.getObjects();
 	}
 	
 	public InternalFactHandle getFactHandle(Object o) {
-		return session.getEntryPoints().stream()
-				.map(e -> e.getFactHandle(o))
-				.filter(h -> nonNull(h))
-				.map(InternalFactHandle.class::cast)
-				.findFirst().orElse(null);
+		return factsIndex.getFactHandle(o);
 	}
 	
 	public InternalFactHandle getFactHandle(Class<?> clazz) {
@@ -368,7 +556,8 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	}
 	
 	public RuleImpl getActivationMeta(String ruleName) {
-		return activationsMeta.get(ruleName);
+		ActivationCounter counter = activationCounters.get(ruleName);
+		return counter == null ? null : counter.rule;
 	}
 	
 	/**
@@ -381,11 +570,16 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	
 	/**
 	 * Move clock forward and trigger any scheduled activations.<br>
-	 * Use time unit as a smallest time tick, make specified amount of ticks.
+	 * Use time unit as a smallest time tick, make specified amount of ticks.<br>
+	 * Ticks without scheduled jobs are skipped if {@link DroolsSession#eventDrivenTime()} is enabled.
 	 */
 	public void advanceTime(TimeUnit unit, long amount) {
-		for (int i = 0; i < amount; i++)
-			tickTime(1, unit);
+		boolean eventDriven = isEventDrivenTime(unit);
+		for (long i = 0; i < amount;) {
+			long ticks = eventDriven ? min(amount - i, ticksToNextJob(unit)) : 1;
+			tickTime(ticks, unit);
+			i += ticks;
+		}
 	}
 	
 	/**
@@ -474,9 +668,7 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	}
 	
 	public void assertActivated(Map<String, Integer> expectedCount) {
-		Map<String, Integer> delta = getNewActivations(activationsSnapshot);
-		activationsSnapshot = new LinkedHashMap<>(activations);
-		assertActivations(expectedCount, delta);
+		assertActivations(expectedCount, checkpointActivations());
 	}
 	
 	protected final void assertActivations(Map<String, Integer> expectedActivations, Map<String, Integer> actualActiavtions) {
@@ -535,7 +727,8 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	
 	/**
 	 * Move clock forward until all listed rules will be activated, fail if any of the rules was not activated before threshold.<br>
-	 * Use time unit as a smallest time tick, make specified amount of ticks at maximum.
+	 * Use time unit as a smallest time tick, make specified amount of ticks at maximum.<br>
+	 * Ticks without scheduled jobs are skipped if {@link DroolsSession#eventDrivenTime()} is enabled.
 	 * 
 	 * @see #awaitFor(String...)
 	 * @see #triggerAllScheduledActivations()
@@ -543,18 +736,21 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	 *             if expected rule was not activated within time period
 	 */
 	public void awaitFor(TimeUnit unit, long maxCount, String... rulesToWait) {
-		Map<String, Integer> activationsSnapshot = new HashMap<>(activations);
 		List<String> rules = asList(rulesToWait);
-		for (int i = 0; i < maxCount; i++) {
-			tickTime(1, unit);
-			if (rules.isEmpty() && !getNewActivations(activationsSnapshot).isEmpty()
-					|| !rules.isEmpty() && getNewActivations(activationsSnapshot).keySet().containsAll(rules))
+		int[] rulesActivationsCount = rules.stream().mapToInt(this::getActivationsCount).toArray();
+		long total = totalActivations;
+		boolean eventDriven = isEventDrivenTime(unit);
+		for (long i = 0; i < maxCount;) {
+			long ticks = eventDriven ? min(maxCount - i, ticksToNextJob(unit)) : 1;
+			tickTime(ticks, unit);
+			i += ticks;
+			if (totalActivations != total && (rules.isEmpty() || getNotActivated(rules, rulesActivationsCount).isEmpty()))
 				return;
 		}
 		
 		fail(rules.isEmpty()
 				? "Expected at least one scheduled activation"
-				: formatUnexpectedCollection("Activation", "not scheduled", subtract(rules, getNewActivations(activationsSnapshot).keySet())));
+				: formatUnexpectedCollection("Activation", "not scheduled", getNotActivated(rules, rulesActivationsCount)));
 	}
 	
 	/**
@@ -564,9 +760,9 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	 * @throws AssertionError
 	 */
 	public void assertNoScheduledActivations() {
-		Map<String, Integer> activationsSnapshot = new HashMap<>(activations);
+		int[] activationsCount = getActivationsCount();
 		triggerAllScheduledActivations();
-		List<String> diff = getNewActivations(activationsSnapshot).keySet().stream().filter(this::isEligibleForAssertion).collect(toList());
+		List<String> diff = getNewActivations(activationsCount).keySet().stream().filter(this::isEligibleForAssertion).collect(toList());
 		assertTrue(diff.isEmpty(), formatUnexpectedCollection("Activation", "scheduled", diff));
 	}
 	
@@ -576,6 +772,24 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 		session.fireAllRules();
 	}
 	
+	/**
+	 * @see DroolsSession#eventDrivenTime()
+	 */
+	protected final boolean isEventDrivenTime(TimeUnit unit) {
+		return droolsSessionMeta.eventDrivenTime() && unit.toMillis(1) > 0 && clock instanceof TimerService;
+	}
+	
+	/**
+	 * Number of whole ticks the clock needs to be moved forward to trigger next scheduled timer job or event expiration, {@link Long#MAX_VALUE} if nothing scheduled.
+	 */
+	protected final long ticksToNextJob(TimeUnit unit) {
+		long timeToNextJob = ((TimerService) clock).getTimeToNextJob();
+		if (timeToNextJob < 0)
+			return MAX_VALUE;
+		long tickMs = unit.toMillis(1);
+		return max(1, timeToNextJob / tickMs + (timeToNextJob % tickMs == 0 ? 0 : 1));
+	}
+	
 	/**
 	 * Trigger all scheduled activations if any
 	 * 
@@ -586,7 +800,7 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	public final void triggerAllScheduledActivations() {
 		long time = clock.getCurrentTime();
 		clock.advanceTime(MAX_VALUE - time, MILLISECONDS);
-		session.fireAllRules();
+		fireRules();
 		clock.advanceTime(-MAX_VALUE + time, MILLISECONDS);
 	}
 	
@@ -597,19 +811,78 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	}
 	
 	/**
-	 * New activations (delta) since previous check.
+	 * New activations (delta) since previous check, moves the check point.<br>
+	 * Only rules activated since previous check are visited.
 	 */
-	protected final Map<String, Integer> getNewActivations(Map<String, Integer> activationsSnapshot) {
+	protected final Map<String, Integer> checkpointActivations() {
+		Map<String, Integer> newActivations = new LinkedHashMap<>();
+		for (ActivationCounter counter : dirtyActivationCounters) {
+			newActivations.put(counter.rule.getName(), counter.count - counter.checkpoint);
+			counter.checkpoint = counter.count;
+		}
+		dirtyActivationCounters.clear();
+		return newActivations;
+	}
+	
+	/**
+	 * Activations count of all rules activated so far in order of first activation
+	 */
+	protected final int[] getActivationsCount() {
+		int[] activationsCount = new int[activationCounters.size()];
+		int i = 0;
+		for (ActivationCounter counter : activationCounters.values())
+			activationsCount[i++] = counter.count;
+		return activationsCount;
+	}
+	
+	protected final int getActivationsCount(String rule) {
+		ActivationCounter counter = activationCounters.get(rule);
+		return counter == null ? 0 : counter.count;
+	}
+	
+	/**
+	 * New activations (delta) since activations count was taken.
+	 * 
+	 * @see #getActivationsCount()
+	 */
+	protected final Map<String, Integer> getNewActivations(int[] activationsCount) {
 		Map<String, Integer> newActivations = new LinkedHashMap<>();
-		for (Entry<String, Integer> activation : activations.entrySet()) {
-			if (!activationsSnapshot.containsKey(activation.getKey()))
-				newActivations.put(activation.getKey(), activation.getValue());
-			else if (activation.getValue() > activationsSnapshot.get(activation.getKey()))
-				newActivations.put(activation.getKey(), activation.getValue() - activationsSnapshot.get(activation.getKey()));
+		int i = 0;
+		for (ActivationCounter counter : activationCounters.values()) {
+			int previous = i < activationsCount.length ? activationsCount[i] : 0;
+			if (counter.count > previous)
+				newActivations.put(counter.rule.getName(), counter.count - previous);
+			i++;
 		}
 		return newActivations;
 	}
 	
+	/**
+	 * New activations (delta) since activations snapshot was taken.
+	 * 
+	 * @deprecated use {@link #getNewActivations(int[])}
+	 */
+	@Deprecated
+	protected final Map<String, Integer> getNewActivations(Map<String, Integer> activationsSnapshot) {
+		int[] activationsCount = new int[activationCounters.size()];
+		int i = 0;
+		for (String rule : activationCounters.keySet())
+			activationsCount[i++] = activationsSnapshot.getOrDefault(rule, 0);
+		return getNewActivations(activationsCount);
+	}
+	
+	/**
+	 * Rules not activated since their activations count was taken
+	 */
+	private List<String> getNotActivated(List<String> rules, int[] rulesActivationsCount) {
+		List<String> notActivated = new ArrayList<>();
+		for (int i = 0; i < rulesActivationsCount.length; i++) {
+			if (getActivationsCount(rules.get(i)) <= rulesActivationsCount[i])
+				notActivated.add(rules.get(i));
+		}
+		return notActivated;
+	}
+	
 	/**
 	 * Asserts object(s) presence in drools knowledge base.
 	 * 
@@ -625,8 +898,7 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 		}
 		
 		deleteExpiredEvents();
-		session.getEntryPoints().stream().flatMap(e -> e.getObjects().stream()).forEach(obj -> identityMap.remove(obj));
-		List<String> deleted = identityMap.keySet().stream().map(this::factToString).collect(toList());
+		List<String> deleted = identityMap.keySet().stream().filter(obj -> !factsIndex.contains(obj)).map(this::factToString).collect(toList());
 		assertTrue(deleted.isEmpty(), formatUnexpectedCollection("Fact", "removed from the session", deleted));
 	}
 	
@@ -645,8 +917,7 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 		}
 		
 		deleteExpiredEvents();
-		List<String> notDeleted = session.getEntryPoints().stream().flatMap(e -> e.getObjects().stream())
-				.filter(obj -> identityMap.containsKey(obj)).map(this::factToString).collect(toList());
+		List<String> notDeleted = identityMap.keySet().stream().filter(factsIndex::contains).map(this::factToString).collect(toList());
 		assertTrue(notDeleted.isEmpty(), formatUnexpectedCollection("Fact", "not deleted from the session", notDeleted));
 	}
 	
@@ -657,7 +928,7 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	 */
 	public void assertAllDeleted() {
 		deleteExpiredEvents();
-		List<String> facts = session.getEntryPoints().stream().flatMap(e -> e.getObjects().stream()).map(this::factToString).collect(toList());
+		List<String> facts = factsIndex.getObjects().stream().map(this::factToString).collect(toList());
 		assertTrue(facts.isEmpty(), formatUnexpectedCollection("Fact", "not deleted from the session", facts));
 	}
 	
@@ -675,7 +946,15 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	 * Define rules to be ignored while any assertions.
 	 */
 	public void ignoreActivations(String... rulePatterns) {
-		ignored.addAll(asList(rulePatterns));
+		for (String rulePattern : rulePatterns) {
+			if (!ignored.add(rulePattern))
+				continue;
+			if (nameMatcher.isPattern(rulePattern))
+				ignoredPatterns.add(rulePattern);
+			else
+				ignoredNames.add(rulePattern);
+		}
+		eligibleForAssertion.clear();
 	}
 	
 	/**
@@ -717,15 +996,65 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	 */
 	public List<FactHandle> insert(EntryPoint entryPoint, Object... objects) {
 		checkArgument(objects != null, "You cannot insert null object into drools knowledge base");
-		List<FactHandle> factHandles = new LinkedList<>();
+		List<FactHandle> factHandles = new ArrayList<>(objects.length);
 		for (int i = 0; i < objects.length; i++) {
 			Object object = objects[i];
-			checkArgument(object != null, "You cannot insert null object into drools knowledge base. Parameter " + (i + 1));
+			checkArgument(object != null, "You cannot insert null object into drools knowledge base. Parameter %s", i + 1);
 			factHandles.add(entryPoint.insert(object));
 		}
 		return factHandles;
 	}
 	
+	/**
+	 * Insert all objects without collecting fact handles
+	 * 
+	 * @return number of objects inserted
+	 * @see KieSession#insert(Object)
+	 */
+	public long insertAll(Iterable<?> objects) {
+		return insertAll(session, objects.iterator(), null);
+	}
+	
+	/**
+	 * Insert all objects without collecting fact handles
+	 * 
+	 * @return number of objects inserted
+	 * @see KieSession#insert(Object)
+	 */
+	public long insertAll(Stream<?> objects) {
+		return insertAll(session, objects.iterator(), null);
+	}
+	
+	/**
+	 * Insert all objects without collecting fact handles
+	 * 
+	 * @return number of objects inserted
+	 * @see KieSession#insert(Object)
+	 */
+	public long insertAll(Iterator<?> objects) {
+		return insertAll(session, objects, null);
+	}
+	
+	/**
+	 * Insert all objects into entry point, pass fact handles to the consumer if specified
+	 * 
+	 * @return number of objects inserted
+	 * @see EntryPoint#insert(Object)
+	 */
+	public long insertAll(EntryPoint entryPoint, Iterator<?> objects, Consumer<? super FactHandle> factHandles) {
+		checkArgument(objects != null, "You cannot insert null object into drools knowledge base");
+		long count = 0;
+		while (objects.hasNext()) {
+			Object object = objects.next();
+			checkArgument(object != null, "You cannot insert null object into drools knowledge base. Parameter %s", count + 1);
+			FactHandle factHandle = entryPoint.insert(object);
+			if (factHandles != null)
+				factHandles.accept(factHandle);
+			count++;
+		}
+		return count;
+	}
+	
 	/**
 	 * Update all objects by their handles
 	 * 
@@ -741,11 +1070,10 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	 * @see EntryPoint#update(FactHandle, Object)
 	 */
 	public void update(Collection<FactHandle> handles) {
-		for (EntryPoint entryPoint : session.getEntryPoints()) {
-			for (FactHandle factHandle : handles) {
-				if (entryPoint.getObject(factHandle) != null)
-					entryPoint.update(factHandle, ((InternalFactHandle) factHandle).getObject());
-			}
+		for (FactHandle factHandle : handles) {
+			EntryPoint entryPoint = getEntryPoint(factHandle);
+			if (entryPoint != null && entryPoint.getObject(factHandle) != null)
+				entryPoint.update(factHandle, ((InternalFactHandle) factHandle).getObject());
 		}
 	}
 	
@@ -755,12 +1083,9 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	 * @see EntryPoint#update(FactHandle, Object)
 	 */
 	public void update(Object... objects) {
-		for (EntryPoint entryPoint : session.getEntryPoints()) {
-			for (Object object : objects) {
-				FactHandle factHandle = entryPoint.getFactHandle(object);
-				if (factHandle != null)
-					entryPoint.update(factHandle, object);
-			}
+		for (Object object : objects) {
+			for (InternalFactHandle factHandle : factsIndex.getFactHandles(object))
+				getEntryPoint(factHandle).update(factHandle, object);
 		}
 	}
 	
@@ -779,11 +1104,10 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	 * @see EntryPoint#delete(FactHandle)
 	 */
 	public void delete(Collection<FactHandle> handles) {
-		for (EntryPoint entryPoint : session.getEntryPoints()) {
-			for (FactHandle factHandle : handles) {
-				if (entryPoint.getObject(factHandle) != null)
-					entryPoint.delete(factHandle);
-			}
+		for (FactHandle factHandle : handles) {
+			EntryPoint entryPoint = getEntryPoint(factHandle);
+			if (entryPoint != null && entryPoint.getObject(factHandle) != null)
+				entryPoint.delete(factHandle);
 		}
 	}
 	
@@ -793,12 +1117,9 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	 * @see EntryPoint#delete(FactHandle)
 	 */
 	public void delete(Object... objects) {
-		for (EntryPoint entryPoint : session.getEntryPoints()) {
-			for (Object object : objects) {
-				FactHandle factHandle = entryPoint.getFactHandle(object);
-				if (factHandle != null)
-					entryPoint.delete(factHandle);
-			}
+		for (Object object : objects) {
+			for (InternalFactHandle factHandle : factsIndex.getFactHandles(object))
+				getEntryPoint(factHandle).delete(factHandle);
 		}
 	}
 	
@@ -808,7 +1129,22 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	public int fireAllRules() {
 		if (droolsSessionMeta.log())
 			log("--> fireAllRules");
-		return session.fireAllRules();
+		return fireRules();
+	}
+	
+	/**
+	 * Fire all rules notifying {@link DroolsassertListener}s about the batch.<br>
+	 * Used for the fires requested by the test only, clock ticks and expired events cleanup fire the session directly.
+	 */
+	private int fireRules() {
+		for (int i = 0; i < listeners.size(); i++)
+			listeners.get(i).beforeFireAllRules();
+		long startNs = nanoTime();
+		int fired = session.fireAllRules();
+		fireAllRulesTimeNs += nanoTime() - startNs;
+		for (int i = 0; i < listeners.size(); i++)
+			listeners.get(i).afterFireAllRules(fired);
+		return fired;
 	}
 	
 	/**
@@ -839,16 +1175,68 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	 */
 	public List<FactHandle> insertAndFire(EntryPoint entryPoint, Object... objects) {
 		checkArgument(objects != null, "You cannot insert null object into drools knowledge base");
-		List<FactHandle> factHandles = new LinkedList<>();
+		List<FactHandle> factHandles = new ArrayList<>(objects.length);
 		for (int i = 0; i < objects.length; i++) {
 			Object object = objects[i];
-			checkArgument(object != null, "You cannot insert null object into drools knowledge base. Parameter " + (i + 1));
+			checkArgument(object != null, "You cannot insert null object into drools knowledge base. Parameter %s", i + 1);
 			factHandles.add(entryPoint.insert(object));
 			fireAllRules();
 		}
 		return factHandles;
 	}
 	
+	/**
+	 * Insert all objects and fire all rules after each batch of facts
+	 * 
+	 * @return number of objects inserted
+	 * @see #insertAllAndFire(EntryPoint, Iterator, int, long, TimeUnit)
+	 */
+	public long insertAllAndFire(Stream<?> objects, int batchSize) {
+		return insertAllAndFire(session, objects.iterator(), batchSize, 0, MILLISECONDS);
+	}
+	
+	/**
+	 * Insert all objects and fire all rules after each batch of facts, move the clock forward between batches
+	 * 
+	 * @return number of objects inserted
+	 * @see #insertAllAndFire(EntryPoint, Iterator, int, long, TimeUnit)
+	 */
+	public long insertAllAndFire(Stream<?> objects, int batchSize, long timeStep, TimeUnit unit) {
+		return insertAllAndFire(session, objects.iterator(), batchSize, timeStep, unit);
+	}
+	
+	/**
+	 * Insert all objects into entry point and fire all rules after each batch of facts without collecting fact handles.<br>
+	 * Clock is moved forward by time step before each next batch, so facts are fed at a given pseudo time rate, for example 1000 events per second.<br>
+	 * Rules are fired after the last batch even if it is incomplete.
+	 * 
+	 * @param batchSize
+	 *            number of facts inserted between rules firing
+	 * @param timeStep
+	 *            pseudo time between batches, zero to keep the clock
+	 * @return number of objects inserted
+	 * @see EntryPoint#insert(Object)
+	 * @see KieSession#fireAllRules()
+	 */
+	public long insertAllAndFire(EntryPoint entryPoint, Iterator<?> objects, int batchSize, long timeStep, TimeUnit unit) {
+		checkArgument(objects != null, "You cannot insert null object into drools knowledge base");
+		checkArgument(batchSize > 0, "Batch size must be positive");
+		checkArgument(timeStep >= 0, "Time step must not be negative");
+		long count = 0;
+		while (objects.hasNext()) {
+			if (count > 0 && timeStep > 0)
+				tickTime(timeStep, unit);
+			for (int i = 0; i < batchSize && objects.hasNext(); i++) {
+				Object object = objects.next();
+				checkArgument(object != null, "You cannot insert null object into drools knowledge base. Parameter %s", count + 1);
+				entryPoint.insert(object);
+				count++;
+			}
+			fireAllRules();
+		}
+		return count;
+	}
+	
 	/**
 	 * Print retained facts in insertion order
 	 * 
@@ -856,7 +1244,7 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	 */
 	public void printFacts() {
 		deleteExpiredEvents();
-		List<Object> sortedFacts = session.getEntryPoints().stream().flatMap(e -> e.getObjects().stream()).collect(toList());
+		List<Object> sortedFacts = factsIndex.getObjects();
 		if (droolsSessionMeta.keepFactsHistory())
 			sort(sortedFacts, (o1, o2) -> factsHistory.get(o1).compareTo(factsHistory.get(o2)));
 		
@@ -868,8 +1256,34 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 		log(sb.toString());
 	}
 	
+	/**
+	 * Asserts rules performance statistic of the test is within the budget
+	 *
+	 * @throws AssertionError
+	 */
+	public void assertPerformanceBudget(PerformanceBudget budget) {
+		List<String> exceeded = new ArrayList<>();
+		for (Entry<String, Stat> e : rulesChrono.getPerfStat().entrySet()) {
+			String rule = e.getKey();
+			Stat stat = e.getValue();
+			if (stat.getLeapsCount() == 0 || stream(budget.rules()).noneMatch(pattern -> nameMatcher.match(pattern, rule)))
+				continue;
+			checkBudget(exceeded, rule, "avg", stat.getAvgTimeMs(), budget.maxAvgTimeMs());
+			checkBudget(exceeded, rule, "max", stat.getMaxTimeMs(), budget.maxTimeMs());
+			checkBudget(exceeded, rule, "p99", stat.getP99TimeMs(), budget.maxP99TimeMs());
+			checkBudget(exceeded, rule, "total", stat.getTotalTimeMs(), budget.maxTotalTimeMs());
+		}
+		checkBudget(exceeded, "fireAllRules", "total", fireAllRulesTimeNs / 1_000_000.0, budget.maxFireAllRulesTimeMs());
+		assertTrue(exceeded.isEmpty(), formatUnexpectedCollection("Performance budget", "exceeded", exceeded));
+	}
+	
+	private void checkBudget(List<String> exceeded, String rule, String measure, double actualMs, double budgetMs) {
+		if (budgetMs > 0 && actualMs > budgetMs)
+			exceeded.add(format("'%s' %s time %.2f ms exceeds %.2f ms", rule, measure, actualMs, budgetMs));
+	}
+	
 	public void printPerformanceStatistic() {
-		StringBuilder sb = new StringBuilder(format("Performance Statistic, total activations %s:", activations.values().stream().mapToInt(Integer::intValue).sum()));
+		StringBuilder sb = new StringBuilder(format("Performance Statistic, total activations %s:", activationCounters.values().stream().mapToInt(c -> c.count).sum()));
 		rulesChrono.getPerfStat().values()
 				.forEach(s -> sb.append(format("%n%s - min: %.2f avg: %.2f max: %.2f activations: %d", s.getFullName(), s.getMinTimeMs(), s.getAvgTimeMs(), s.getMaxTimeMs(), s.getLeapsCount())));
 		log(sb.toString());
@@ -883,6 +1297,7 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 		if (context.getDisplayName().matches(parameterizedScenarioNameRegex))
 			scenario.append(context.getDisplayName().replaceAll(parameterizedScenarioNameRegex, "[$1]"));
 		init(clazz.getAnnotation(DroolsSession.class), method.getAnnotation(TestRules.class));
+		performanceBudgetMeta = defaultIfNull(method.getAnnotation(PerformanceBudget.class), clazz.getAnnotation(PerformanceBudget.class));
 		listeners.forEach(l -> l.beforeScenario(getSimpleName(clazz), scenario.toString()));
 	}
 	
@@ -890,7 +1305,6 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	public void afterEach(ExtensionContext context) throws Exception {
 		if (session == null)
 			return;
-		listeners.forEach(DroolsassertListener::afterScenario);
 		
 		if (testRulesMeta != null) {
 			try {
@@ -908,6 +1322,14 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 				errors.add(0, th);
 			}
 		}
+		listeners.forEach(DroolsassertListener::afterScenario);
+		if (performanceBudgetMeta != null) {
+			try {
+				assertPerformanceBudget(performanceBudgetMeta);
+			} catch (Throwable th) {
+				errors.add(th);
+			}
+		}
 		
 		destroy();
 		rethrowMultiple(errors);
@@ -933,6 +1355,9 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	
 	private void initializeIgnoredActivations() {
 		ignored = new HashSet<>();
+		ignoredNames = new HashSet<>();
+		ignoredPatterns = new ArrayList<>();
+		eligibleForAssertion = new HashMap<>();
 		ignoreActivations(droolsSessionMeta.ignoreRules());
 		if (!droolsSessionMeta.ignoreRulesSource().isEmpty())
 			ignoreActivations(getRulesFromSource(getResources(true, false, droolsSessionMeta.ignoreRulesSource())));
@@ -949,7 +1374,13 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	
 	public void destroy() {
 		rulesChrono.reset();
-		session.dispose();
+		if (sessionPrefixIndex >= 0)
+			releaseSessionPrefix(sessionPrefixIndex);
+		sessionPrefixIndex = -1;
+		if (droolsSessionMeta.sessionPool() > 0)
+			sessionPool(droolsSessionMeta).release(session);
+		else
+			session.dispose();
 	}
 	
 	protected KieSessionConfiguration sessionConfiguration(DroolsSession droolsSessionMeta) throws IOException {
@@ -958,8 +1389,14 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 	}
 	
 	protected KieBaseConfiguration baseConfiguration(DroolsSession droolsSessionMeta) throws IOException {
-		return KieServices.Factory.get().newKieBaseConfiguration(
-				loadProperties(() -> this.defaultBaseProperties(), () -> droolsSessionMeta.basePropertySource(), () -> droolsSessionMeta.baseProperties()));
+		return KieServices.Factory.get().newKieBaseConfiguration(baseProperties(droolsSessionMeta));
+	}
+	
+	/**
+	 * @see KieBaseConfiguration
+	 */
+	protected Properties baseProperties(DroolsSession droolsSessionMeta) throws IOException {
+		return loadProperties(() -> this.defaultBaseProperties(), () -> droolsSessionMeta.basePropertySource(), () -> droolsSessionMeta.baseProperties());
 	}
 	
 	/**
@@ -993,8 +1430,25 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 		return new String[0]; // { "drools.dump.dir = target/drools-dump" };
 	}
 	
+	/**
+	 * Rules chrono listener gathering statistic under the session prefix, so tests running in parallel do not share or reset each other statistic
+	 */
 	protected RulesChronoAgendaEventListener rulesChrono() {
-		return rulesChrono = new RulesChronoAgendaEventListener();
+		return rulesChrono = new RulesChronoAgendaEventListener().withSessionPrefix(sessionPrefix);
+	}
+	
+	private static int acquireSessionPrefix() {
+		synchronized (sessionPrefixes) {
+			int index = sessionPrefixes.nextClearBit(0);
+			sessionPrefixes.set(index);
+			return index;
+		}
+	}
+	
+	private static void releaseSessionPrefix(int index) {
+		synchronized (sessionPrefixes) {
+			sessionPrefixes.clear(index);
+		}
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -1020,7 +1474,9 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 		return asList(
 				new LoggingListener(droolsSessionMeta, this),
 				new ActivationReportBuilder(session, activations),
-				new StateTransitionBuilder(droolsSessionMeta, this, clock))
+				new StateTransitionBuilder(droolsSessionMeta, this, clock),
+				new FlightRecorderListener(),
+				new PerformanceBaselineBuilder(this))
 						.stream().filter(DroolsassertListener::enabled).collect(toList());
 	}
 	
@@ -1028,8 +1484,16 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 		return listeners;
 	}
 	
+	/**
+	 * Exact rule names are looked up, only wildcard patterns are matched. Result is remembered per rule name until ignored rules change.
+	 */
 	protected boolean isEligibleForAssertion(String rule) {
-		return !ignored.stream().filter(pattern -> nameMatcher.match(pattern, rule)).findFirst().isPresent();
+		Boolean eligible = eligibleForAssertion.get(rule);
+		if (eligible == null) {
+			eligible = !ignoredNames.contains(rule) && ignoredPatterns.stream().noneMatch(pattern -> nameMatcher.match(pattern, rule));
+			eligibleForAssertion.put(rule, eligible);
+		}
+		return eligible;
 	}
 	
 	public String factToString(Object fact) {
@@ -1044,12 +1508,138 @@ public class DroolsAssert implements BeforeEachCallback, AfterEachCallback, Test
 		out.println(formatTime(clock) + SPACE + message);
 	}
 	
+	/**
+	 * Mutable activations count of the rule.<br>
+	 * Rules with the same name share the counter.
+	 */
+	protected static final class ActivationCounter {
+		protected final RuleImpl rule;
+		protected int count;
+		protected int checkpoint;
+		
+		protected ActivationCounter(RuleImpl rule) {
+			this.rule = rule;
+		}
+	}
+	
 	private class ActivationsTracker extends DefaultAgendaEventListener {
 		@Override
 		public void beforeMatchFired(BeforeMatchFiredEvent event) {
 			RuleImpl rule = (RuleImpl) event.getMatch().getRule();
-			activations.put(rule.getName(), firstNonNull(activations.get(rule.getName()), INTEGER_ZERO) + 1);
-			activationsMeta.put(rule.getName(), rule);
+			ActivationCounter counter = ruleActivationCounters.get(rule);
+			if (counter == null) {
+				counter = activationCounters.computeIfAbsent(rule.getName(), name -> new ActivationCounter(rule));
+				ruleActivationCounters.put(rule, counter);
+			}
+			if (counter.count++ == counter.checkpoint)
+				dirtyActivationCounters.add(counter);
+			totalActivations++;
+		}
+	}
+	
+	/**
+	 * View of the activation counters by rule name in order of first activation.<br>
+	 * Writes go through to the counters, rules not activated yet must be known to the knowledge base.
+	 */
+	private class ActivationsView extends AbstractMap<String, Integer> {
+		@Override
+		public Integer get(Object rule) {
+			ActivationCounter counter = activationCounters.get(rule);
+			return counter == null ? null : counter.count;
+		}
+		
+		@Override
+		public boolean containsKey(Object rule) {
+			return activationCounters.containsKey(rule);
+		}
+		
+		@Override
+		public Integer put(String rule, Integer count) {
+			ActivationCounter counter = activationCounters.get(rule);
+			Integer previous = counter == null ? null : counter.count;
+			if (counter == null) {
+				RuleImpl ruleImpl = getRule(rule);
+				counter = new ActivationCounter(ruleImpl);
+				activationCounters.put(rule, counter);
+				ruleActivationCounters.put(ruleImpl, counter);
+			}
+			setCount(counter, count);
+			return previous;
+		}
+		
+		@Override
+		public Integer remove(Object rule) {
+			ActivationCounter counter = activationCounters.get(rule);
+			if (counter == null)
+				return null;
+			int previous = counter.count;
+			activationCounters.remove(rule);
+			removed(counter);
+			return previous;
+		}
+		
+		@Override
+		public int size() {
+			return activationCounters.size();
+		}
+		
+		@Override
+		public Set<Entry<String, Integer>> entrySet() {
+			return new AbstractSet<Entry<String, Integer>>() {
+				@Override
+				public Iterator<Entry<String, Integer>> iterator() {
+					Iterator<ActivationCounter> counters = activationCounters.values().iterator();
+					return new Iterator<Entry<String, Integer>>() {
+						@Override
+						public boolean hasNext() {
+							return counters.hasNext();
+						}
+						
+						private ActivationCounter counter;
+						
+						@Override
+						public Entry<String, Integer> next() {
+							counter = counters.next();
+							return new SimpleImmutableEntry<>(counter.rule.getName(), counter.count);
+						}
+						
+						@Override
+						public void remove() {
+							counters.remove();
+							removed(counter);
+						}
+					};
+				}
+				
+				@Override
+				public int size() {
+					return activationCounters.size();
+				}
+			};
+		}
+		
+		private void setCount(ActivationCounter counter, int count) {
+			boolean dirty = counter.count != counter.checkpoint;
+			counter.count = count;
+			if (!dirty && count != counter.checkpoint)
+				dirtyActivationCounters.add(counter);
+			else if (dirty && count == counter.checkpoint)
+				dirtyActivationCounters.remove(counter);
+		}
+		
+		private void removed(ActivationCounter counter) {
+			ruleActivationCounters.remove(counter.rule);
+			dirtyActivationCounters.remove(counter);
+		}
+		
+		private RuleImpl getRule(String rule) {
+			for (KiePackage kiePackage : session.getKieBase().getKiePackages()) {
+				for (Rule candidate : kiePackage.getRules()) {
+					if (candidate.getName().equals(rule))
+						return (RuleImpl) candidate;
+				}
+			}
+			throw new DroolsAssertException(format("No rule %s found", rule));
 		}
 	}
 	
@@ -153,4 +153,27 @@ public @interface DroolsSession {
 	 * Default - false (disable)
 	 */
 	boolean showStateTransitionPopup() default false;
-}
\ No newline at end of file
+	
+	/**
+	 * Advance the clock straight to the next scheduled timer job or event expiration instead of firing rules on every tick.<br>
+	 * Ticks without scheduled jobs are skipped, the clock is still moved by whole ticks, so activations are the same as for tick by tick advancement.<br>
+	 * Makes tests with hourly or daily windows orders of magnitude faster.<br>
+	 * <br>
+	 * Default - false (tick by tick)
+	 * 
+	 * @see DroolsAssert#advanceTime(java.util.concurrent.TimeUnit, long)
+	 * @see DroolsAssert#awaitFor(java.util.concurrent.TimeUnit, long, String...)
+	 */
+	boolean eventDrivenTime() default false;
+	
+	/**
+	 * Reuse sessions between tests instead of creating the new one per test. Defines maximum number of idle sessions kept for this session meta data.<br>
+	 * Session is reset when test finishes: facts, agenda, timers and globals are cleared, listeners are removed, the clock is set to the test given time when reused.<br>
+	 * Idle sessions are disposed and pool hit rate is logged on VM shutdown.<br>
+	 * <br>
+	 * Default - 0 (new session per test)
+	 * 
+	 * @see SessionPool
+	 */
+	int sessionPool() default 0;
+}
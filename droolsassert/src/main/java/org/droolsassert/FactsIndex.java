@@ -0,0 +1,166 @@
+package org.droolsassert;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.newSetFromMap;
+import static java.util.Collections.singletonList;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.drools.core.common.InternalFactHandle;
+import org.kie.api.event.rule.DefaultRuleRuntimeEventListener;
+import org.kie.api.event.rule.ObjectDeletedEvent;
+import org.kie.api.event.rule.ObjectInsertedEvent;
+import org.kie.api.event.rule.ObjectUpdatedEvent;
+
+/**
+ * Incremental index of the facts in working memory by entry point and concrete class.<br>
+ * Fed by the session events, so queries and assertions do not need to scan all entry points of the session.<br>
+ * Object to fact handle lookup is a single identity map lookup unless the same object was inserted into several entry points.<br>
+ * Expired events are retracted without {@link ObjectDeletedEvent}, event handles are checked and the expired ones are dropped before the index is queried.
+ */
+public class FactsIndex extends DefaultRuleRuntimeEventListener {
+	
+	private final Map<String, Map<Class<?>, Map<Object, InternalFactHandle>>> entryPoints = new LinkedHashMap<>();
+	private final Map<Object, InternalFactHandle> handles = new IdentityHashMap<>();
+	private final Set<Object> shared = newSetFromMap(new IdentityHashMap<>());
+	private final Map<InternalFactHandle, Object> events = new IdentityHashMap<>();
+	
+	@Override
+	public void objectInserted(ObjectInsertedEvent event) {
+		add((InternalFactHandle) event.getFactHandle(), event.getObject());
+	}
+	
+	@Override
+	public void objectUpdated(ObjectUpdatedEvent event) {
+		if (event.getOldObject() != event.getObject()) {
+			InternalFactHandle fh = (InternalFactHandle) event.getFactHandle();
+			remove(fh, event.getOldObject());
+			add(fh, event.getObject());
+		}
+	}
+	
+	@Override
+	public void objectDeleted(ObjectDeletedEvent event) {
+		remove((InternalFactHandle) event.getFactHandle(), event.getOldObject());
+	}
+	
+	protected void add(InternalFactHandle fh, Object object) {
+		entryPoints.computeIfAbsent(fh.getEntryPointName(), k -> new LinkedHashMap<>())
+				.computeIfAbsent(object.getClass(), k -> new IdentityHashMap<>())
+				.put(object, fh);
+		if (fh.isEvent())
+			events.put(fh, object);
+		InternalFactHandle existing = handles.putIfAbsent(object, fh);
+		if (existing != null && existing != fh)
+			shared.add(object);
+	}
+	
+	protected void remove(InternalFactHandle fh, Object object) {
+		events.remove(fh, object);
+		for (Map<Class<?>, Map<Object, InternalFactHandle>> classes : entryPoints.values()) {
+			Map<Object, InternalFactHandle> objects = classes.get(object.getClass());
+			if (objects != null && objects.get(object) == fh)
+				objects.remove(object);
+		}
+		
+		if (!shared.contains(object)) {
+			handles.remove(object, fh);
+			return;
+		}
+		List<InternalFactHandle> remaining = scanFactHandles(object);
+		if (remaining.size() < 2)
+			shared.remove(object);
+		if (remaining.isEmpty())
+			handles.remove(object);
+		else
+			handles.put(object, remaining.get(0));
+	}
+	
+	/**
+	 * Drop the events which expired or were retracted otherwise since the last query
+	 */
+	protected void removeExpired() {
+		if (events.isEmpty())
+			return;
+		Map<InternalFactHandle, Object> expired = new IdentityHashMap<>();
+		events.forEach((fh, object) -> {
+			if (fh.isExpired() || !fh.isValid())
+				expired.put(fh, object);
+		});
+		expired.forEach(this::remove);
+	}
+	
+	/**
+	 * All objects which are instances of the class in all entry points
+	 */
+	public <T> List<T> getObjects(Class<T> clazz) {
+		removeExpired();
+		List<T> result = new ArrayList<>();
+		for (Map<Class<?>, Map<Object, InternalFactHandle>> classes : entryPoints.values()) {
+			for (Entry<Class<?>, Map<Object, InternalFactHandle>> objects : classes.entrySet()) {
+				if (clazz.isAssignableFrom(objects.getKey()))
+					objects.getValue().keySet().forEach(obj -> result.add(clazz.cast(obj)));
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * All objects in all entry points
+	 */
+	public List<Object> getObjects() {
+		removeExpired();
+		List<Object> result = new ArrayList<>();
+		for (Map<Class<?>, Map<Object, InternalFactHandle>> classes : entryPoints.values()) {
+			for (Map<Object, InternalFactHandle> objects : classes.values())
+				result.addAll(objects.keySet());
+		}
+		return result;
+	}
+	
+	/**
+	 * Fact handle of the object in any entry point, {@code null} if object is not in working memory
+	 */
+	public InternalFactHandle getFactHandle(Object object) {
+		removeExpired();
+		return handles.get(object);
+	}
+	
+	/**
+	 * Fact handles of the object in all entry points it was inserted into
+	 */
+	public List<InternalFactHandle> getFactHandles(Object object) {
+		removeExpired();
+		if (shared.contains(object))
+			return scanFactHandles(object);
+		InternalFactHandle fh = handles.get(object);
+		return fh == null ? emptyList() : singletonList(fh);
+	}
+	
+	public boolean contains(Object object) {
+		removeExpired();
+		return handles.containsKey(object);
+	}
+	
+	public boolean isEmpty() {
+		removeExpired();
+		return handles.isEmpty();
+	}
+	
+	private List<InternalFactHandle> scanFactHandles(Object object) {
+		List<InternalFactHandle> result = new ArrayList<>();
+		for (Map<Class<?>, Map<Object, InternalFactHandle>> classes : entryPoints.values()) {
+			Map<Object, InternalFactHandle> objects = classes.get(object.getClass());
+			InternalFactHandle fh = objects == null ? null : objects.get(object);
+			if (fh != null)
+				result.add(fh);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,309 @@
+package org.droolsassert;
+
+import static java.io.File.pathSeparator;
+import static java.lang.String.format;
+import static java.lang.System.getProperty;
+import static java.lang.System.nanoTime;
+import static java.lang.System.out;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.regex.Pattern.MULTILINE;
+import static java.util.regex.Pattern.compile;
+import static java.util.stream.Collectors.toList;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+import static org.apache.commons.lang3.StringUtils.EMPTY;
+import static org.apache.commons.lang3.StringUtils.defaultIfEmpty;
+import static org.apache.commons.lang3.StringUtils.trimToEmpty;
+import static org.droolsassert.DroolsAssertUtils.directory;
+import static org.droolsassert.DroolsAssertUtils.LazyWorkDirectory.workDir;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.IOUtils;
+import org.drools.base.common.DroolsObjectInputStream;
+import org.drools.base.common.DroolsObjectOutputStream;
+import org.drools.kiesession.rulebase.InternalKnowledgeBase;
+import org.drools.kiesession.rulebase.KnowledgeBaseFactory;
+import org.drools.wiring.api.classloader.ProjectClassLoader;
+import org.droolsassert.DroolsAssertUtils.LazyReentrantFileLockFactory;
+import org.droolsassert.util.ReentrantFileLock;
+import org.kie.api.KieBase;
+import org.kie.api.KieBaseConfiguration;
+import org.kie.api.KieServices;
+import org.kie.api.definition.KiePackage;
+import org.springframework.core.io.Resource;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Persistent cache of compiled knowledge bases shared between JVM runs (parallel surefire forks, consecutive builds etc.)<br>
+ * Compiled {@link KiePackage}s are serialized into the cache directory under the hash of resolved resources content, inline source, builder and base properties
+ * and the classpath, so the entries are not reused after fact model or drools changes. The {@link KieBase} is assembled from the cached packages.<br>
+ * Classpath jars are taken by size and modification time, classpath directories by the class files of the packages the rules declare and import.<br>
+ * Cache entry is built once under the file lock, other JVMs waiting for the same entry will read it when ready.<br>
+ * Entries which cannot be read back are rebuilt and overwritten, the first failure is always logged.
+ * <p>
+ * Define system property to enable the cache
+ *
+ * <pre>
+ * -Ddroolsassert.kieBaseCache[=&lt;directory_path&gt;]
+ * </pre>
+ *
+ * <b>directory_path</b> - cache directory, default
+ *
+ * <pre>
+ * target/droolsassert/kieBaseCache
+ * </pre>
+ *
+ * Cached knowledge bases are not held in memory by the cache itself.
+ */
+public class KieBaseCache {
+	
+	private static String systemProperty = getProperty("droolsassert.kieBaseCache");
+	
+	private static class LazyKieBaseCache {
+		private static final KieBaseCache instance = new KieBaseCache();
+	}
+	
+	public static boolean enabled() {
+		return systemProperty != null;
+	}
+	
+	public static KieBaseCache instance() {
+		return LazyKieBaseCache.instance;
+	}
+	
+	/**
+	 * Fingerprint of the classpath jars computed once per VM
+	 */
+	private static class LazyClasspathHash {
+		private static final String instance = classpathHash();
+	}
+	
+	/**
+	 * Classpath directories resolved once per VM
+	 */
+	private static class LazyClasspathDirectories {
+		private static final List<File> instance = classpath().map(File::new).filter(File::isDirectory).collect(toList());
+	}
+	
+	private static final Pattern PACKAGE_OR_IMPORT = compile("^\\s*(?<keyword>package|import)\\s+(?:static\\s+|function\\s+|accumulate\\s+)?(?<name>[\\w.$]+)", MULTILINE);
+	
+	private final File cacheDirectory;
+	private final AtomicBoolean failureLogged = new AtomicBoolean();
+	
+	protected KieBaseCache() {
+		this(new File(defaultIfEmpty("true".equals(systemProperty) ? EMPTY : trimToEmpty(systemProperty), Path.of(workDir, "kieBaseCache").toString())));
+	}
+	
+	protected KieBaseCache(File cacheDirectory) {
+		this.cacheDirectory = directory(cacheDirectory);
+	}
+	
+	/**
+	 * Cache key as a hash of everything the compiled knowledge base depends on
+	 */
+	public String key(List<Resource> resources, String[] source, Properties builderProperties, Properties baseProperties) throws IOException {
+		Hasher hasher = Hashing.sha256().newHasher();
+		putString(hasher, String.valueOf(KieServices.class.getPackage().getImplementationVersion()));
+		putString(hasher, LazyClasspathHash.instance);
+		Set<String> javaPackages = new TreeSet<>();
+		for (Resource resource : resources) {
+			putString(hasher, resource.getFilename());
+			try (InputStream is = resource.getInputStream()) {
+				byte[] content = IOUtils.toByteArray(is);
+				hasher.putInt(content.length);
+				hasher.putBytes(content);
+				javaPackages(javaPackages, new String(content, UTF_8));
+			}
+		}
+		for (String s : source) {
+			putString(hasher, s);
+			javaPackages(javaPackages, s);
+		}
+		putProperties(hasher, builderProperties);
+		putProperties(hasher, baseProperties);
+		putDirectories(hasher, javaPackages);
+		return hasher.hash().toString();
+	}
+	
+	/**
+	 * Returns knowledge base assembled from the cached packages or builds and caches the new one.
+	 */
+	public KieBase computeIfAbsent(String key, KieBaseConfiguration configuration, KieBaseBuilder builder, boolean log) throws IOException {
+		File file = new File(cacheDirectory, key + ".kbase");
+		// lock position in the file must not be negative
+		ReentrantFileLock lock = LazyReentrantFileLockFactory.instance.newLock((KieBaseCache.class.getName() + key).hashCode() & Integer.MAX_VALUE);
+		lock.lock();
+		try {
+			long start = nanoTime();
+			KieBase kieBase = read(file, configuration, log);
+			if (kieBase != null) {
+				if (log)
+					out.println(format("KieBase cache hit %s (%,d ms)", key, NANOSECONDS.toMillis(nanoTime() - start)));
+				return kieBase;
+			}
+			
+			start = nanoTime();
+			kieBase = builder.build();
+			if (log)
+				out.println(format("KieBase cache miss %s, built in %,d ms", key, NANOSECONDS.toMillis(nanoTime() - start)));
+			write(file, kieBase, log);
+			return kieBase;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	public File getCacheDirectory() {
+		return cacheDirectory;
+	}
+	
+	/**
+	 * Classes generated for declared types are defined in the new knowledge base class loader before the packages referring them are read
+	 */
+	@SuppressWarnings("unchecked")
+	private KieBase read(File file, KieBaseConfiguration configuration, boolean log) {
+		if (!file.exists())
+			return null;
+		InternalKnowledgeBase kieBase = KnowledgeBaseFactory.newKnowledgeBase(configuration);
+		try (ObjectInputStream ois = new DroolsObjectInputStream(new BufferedInputStream(new FileInputStream(file)), kieBase.getRootClassLoader())) {
+			Map<String, byte[]> classes = (Map<String, byte[]>) ois.readObject();
+			if (!classes.isEmpty())
+				((ProjectClassLoader) kieBase.getRootClassLoader()).storeClasses(classes);
+			kieBase.addPackages((Collection<KiePackage>) ois.readObject());
+			return kieBase;
+		} catch (Exception | LinkageError e) {
+			if (log || failureLogged.compareAndSet(false, true))
+				out.println(format("KieBase cache entry %s cannot be read and will be rebuilt: %s", file.getName(), e));
+			deleteQuietly(file);
+			return null;
+		}
+	}
+	
+	/**
+	 * File lock does not exclude threads of the same VM, every writer gets its own temporary file
+	 */
+	private void write(File file, KieBase kieBase, boolean log) {
+		File tmp = null;
+		try {
+			tmp = File.createTempFile(file.getName(), ".tmp", cacheDirectory);
+			try (ObjectOutputStream oos = new DroolsObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+				oos.writeObject(generatedClasses(kieBase));
+				oos.writeObject(new ArrayList<>(kieBase.getKiePackages()));
+			}
+			Files.move(tmp.toPath(), file.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+		} catch (IOException | RuntimeException e) {
+			if (log || failureLogged.compareAndSet(false, true))
+				out.println(format("KieBase cannot be cached: %s", e));
+			deleteQuietly(tmp);
+		}
+	}
+	
+	private static Map<String, byte[]> generatedClasses(KieBase kieBase) {
+		if (kieBase instanceof InternalKnowledgeBase && ((InternalKnowledgeBase) kieBase).getRootClassLoader() instanceof ProjectClassLoader) {
+			Map<String, byte[]> store = ((ProjectClassLoader) ((InternalKnowledgeBase) kieBase).getRootClassLoader()).getStore();
+			if (store != null)
+				return new HashMap<>(store);
+		}
+		return new HashMap<>();
+	}
+	
+	/**
+	 * Hash of the test classpath entries, jars by size and modification time, directories by path only.<br>
+	 * Surefire runs tests with a manifest-only jar, the real classpath is taken from {@code surefire.test.class.path} then.
+	 */
+	private static String classpathHash() {
+		Hasher hasher = Hashing.sha256().newHasher();
+		classpath().forEach(entry -> {
+			File file = new File(entry);
+			putString(hasher, entry);
+			if (file.isFile())
+				putFile(hasher, file);
+		});
+		return hasher.hash().toString();
+	}
+	
+	private static Stream<String> classpath() {
+		return Stream.of(getProperty("surefire.test.class.path", getProperty("java.class.path")).split(pathSeparator));
+	}
+	
+	/**
+	 * Java packages declared or imported by the rules source along with their parent packages, so nested and static imports are covered as well
+	 */
+	private static void javaPackages(Set<String> javaPackages, String source) {
+		Matcher matcher = PACKAGE_OR_IMPORT.matcher(source);
+		while (matcher.find()) {
+			String name = "package".equals(matcher.group("keyword")) ? matcher.group("name") + ".*" : matcher.group("name");
+			for (int i = name.lastIndexOf('.'); i > 0; i = name.lastIndexOf('.', i - 1))
+				javaPackages.add(name.substring(0, i));
+		}
+	}
+	
+	/**
+	 * Class files of the given packages in classpath directories, non-recursive
+	 */
+	private static void putDirectories(Hasher hasher, Set<String> javaPackages) {
+		for (File directory : LazyClasspathDirectories.instance) {
+			for (String javaPackage : javaPackages) {
+				File[] files = new File(directory, javaPackage.replace('.', File.separatorChar)).listFiles(File::isFile);
+				if (files == null)
+					continue;
+				Stream.of(files).sorted().forEach(file -> {
+					putString(hasher, file.getPath());
+					putFile(hasher, file);
+				});
+			}
+		}
+	}
+	
+	private static void putFile(Hasher hasher, File file) {
+		hasher.putLong(file.length());
+		hasher.putLong(file.lastModified());
+	}
+	
+	private static void putProperties(Hasher hasher, Properties properties) {
+		for (Entry<Object, Object> property : new TreeMap<>(properties).entrySet()) {
+			putString(hasher, String.valueOf(property.getKey()));
+			putString(hasher, String.valueOf(property.getValue()));
+		}
+	}
+	
+	private static void putString(Hasher hasher, String value) {
+		byte[] bytes = String.valueOf(value).getBytes(UTF_8);
+		hasher.putInt(bytes.length);
+		hasher.putBytes(bytes);
+	}
+	
+	@FunctionalInterface
+	public interface KieBaseBuilder {
+		KieBase build() throws IOException;
+	}
+}
@@ -0,0 +1,59 @@
+package org.droolsassert;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.springframework.util.AntPathMatcher;
+
+/**
+ * Rules performance budget asserted at the end of the test against the statistic gathered by rules chrono.<br>
+ * Limits are in milliseconds, zero means no limit. Declared on the method overrides one declared on the test class.
+ * 
+ * <pre>
+ * &#64;Test
+ * &#64;PerformanceBudget(rules = "atomic*", maxAvgTimeMs = 5, maxP99TimeMs = 20)
+ * public void testInt() {
+ * </pre>
+ * 
+ * @see DroolsAssert#getRulesChrono()
+ */
+@Retention(RUNTIME)
+@Target({ METHOD, TYPE })
+public @interface PerformanceBudget {
+	
+	/**
+	 * Rules the limits apply to, all rules by default
+	 * 
+	 * @see AntPathMatcher
+	 */
+	String[] rules() default { "*" };
+	
+	/**
+	 * Max average time of the rule
+	 */
+	double maxAvgTimeMs() default 0;
+	
+	/**
+	 * Max time of the single rule execution
+	 */
+	double maxTimeMs() default 0;
+	
+	/**
+	 * Max 99th percentile time of the rule
+	 */
+	double maxP99TimeMs() default 0;
+	
+	/**
+	 * Max total time of the rule executions
+	 */
+	double maxTotalTimeMs() default 0;
+	
+	/**
+	 * Max total time spent in {@code fireAllRules} during the test, including the engine work
+	 */
+	double maxFireAllRulesTimeMs() default 0;
+}
@@ -0,0 +1,99 @@
+package org.droolsassert;
+
+import static java.lang.String.format;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.drools.core.common.InternalWorkingMemory;
+import org.kie.api.runtime.KieSession;
+
+/**
+ * Pool of idle sessions created for the same session meta data.<br>
+ * Released session is reset (facts, agenda, timers, globals) and all its listeners are removed, so the next test gets it as good as new without paying for session creation.<br>
+ * Sessions which cannot be reset or do not fit into the pool are disposed, idle sessions are disposed when the pool is closed.
+ *
+ * @see DroolsSession#sessionPool()
+ */
+public class SessionPool implements AutoCloseable {
+	
+	private final BlockingQueue<KieSession> idle;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private volatile boolean closed;
+	
+	public SessionPool(int capacity) {
+		idle = new ArrayBlockingQueue<>(capacity);
+	}
+	
+	/**
+	 * Takes idle session from the pool or creates the new one
+	 */
+	public KieSession acquire(Supplier<KieSession> newSession) {
+		KieSession session = idle.poll();
+		if (session != null) {
+			hits.incrementAndGet();
+			return session;
+		}
+		misses.incrementAndGet();
+		return newSession.get();
+	}
+	
+	/**
+	 * Resets the session and returns it to the pool
+	 */
+	public void release(KieSession session) {
+		try {
+			reset(session);
+		} catch (RuntimeException e) {
+			session.dispose();
+			return;
+		}
+		if (closed || !idle.offer(session) || closed && idle.remove(session))
+			session.dispose();
+	}
+	
+	/**
+	 * Disposes idle sessions, sessions released afterwards are disposed as well
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		for (KieSession session = idle.poll(); session != null; session = idle.poll())
+			session.dispose();
+	}
+	
+	protected void reset(KieSession session) {
+		new ArrayList<>(session.getAgendaEventListeners()).forEach(session::removeEventListener);
+		new ArrayList<>(session.getRuleRuntimeEventListeners()).forEach(session::removeEventListener);
+		try {
+			new ArrayList<>(session.getProcessEventListeners()).forEach(session::removeEventListener);
+		} catch (UnsupportedOperationException e) {
+			// no process runtime on the class path
+		}
+		InternalWorkingMemory workingMemory = (InternalWorkingMemory) session;
+		new ArrayList<>(session.getGlobals().getGlobalKeys()).forEach(workingMemory::removeGlobal);
+		workingMemory.reset();
+	}
+	
+	public long getHits() {
+		return hits.get();
+	}
+	
+	public long getMisses() {
+		return misses.get();
+	}
+	
+	public double getHitRate() {
+		long total = hits.get() + misses.get();
+		return total == 0 ? 0 : (double) hits.get() / total;
+	}
+	
+	@Override
+	public String toString() {
+		return format("Session pool hits %d, misses %d, hit rate %.0f%%", getHits(), getMisses(), getHitRate() * 100);
+	}
+}
@@ -197,6 +197,12 @@ public class DroolsAssertSteps<A extends DroolsAssert> extends NullStoryReporter
 			} else if (line.matches("\\s*show state transition popup:?(\\s|$).*")) {
 				droolsSessionMeta.showStateTransitionPopup = parseBoolean(line.replaceFirst("\\s*show state transition popup:?(\\s|$)", ""));
 				continue;
+			} else if (line.matches("\\s*event driven time:?(\\s|$).*")) {
+				droolsSessionMeta.eventDrivenTime = parseBoolean(line.replaceFirst("\\s*event driven time:?(\\s|$)", ""));
+				continue;
+			} else if (line.matches("\\s*session pool:?(\\s|$).*")) {
+				droolsSessionMeta.sessionPool = Integer.parseInt(line.replaceFirst("\\s*session pool:?(\\s|$)", "").trim());
+				continue;
 			}
 			if (line.isEmpty())
 				continue;
@@ -33,6 +33,8 @@ public class DroolsSessionProxy implements InvocationHandler {
 	protected boolean logFacts = true;
 	protected boolean log = true;
 	protected boolean showStateTransitionPopup = false;
+	protected boolean eventDrivenTime = false;
+	protected int sessionPool = 0;
 	
 	@Override
 	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
@@ -68,6 +70,10 @@ public class DroolsSessionProxy implements InvocationHandler {
 			return log;
 		case "showStateTransitionPopup":
 			return showStateTransitionPopup;
+		case "eventDrivenTime":
+			return eventDrivenTime;
+		case "sessionPool":
+			return sessionPool;
 		case "hashCode":
 			return hashCode();
 		case "equals":
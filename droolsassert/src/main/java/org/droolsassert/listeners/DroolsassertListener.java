@@ -9,4 +9,10 @@ public interface DroolsassertListener {
 	
 	default void afterScenario() {
 	}
+	
+	default void beforeFireAllRules() {
+	}
+	
+	default void afterFireAllRules(int firedRules) {
+	}
 }
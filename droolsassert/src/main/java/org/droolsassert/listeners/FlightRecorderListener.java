@@ -0,0 +1,182 @@
+package org.droolsassert.listeners;
+
+import static java.lang.System.getProperty;
+
+import org.drools.core.common.InternalFactHandle;
+import org.droolsassert.util.MatchStack;
+import org.droolsassert.util.MatchStack.Leap;
+import org.kie.api.event.rule.AfterMatchFiredEvent;
+import org.kie.api.event.rule.BeforeMatchFiredEvent;
+import org.kie.api.event.rule.DefaultAgendaEventListener;
+import org.kie.api.event.rule.ObjectDeletedEvent;
+import org.kie.api.event.rule.ObjectInsertedEvent;
+import org.kie.api.event.rule.ObjectUpdatedEvent;
+import org.kie.api.event.rule.RuleRuntimeEventListener;
+import org.kie.api.runtime.rule.FactHandle;
+import org.kie.api.runtime.rule.Match;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emits JDK Flight Recorder events for rule firings, fact operations and fireAllRules batches.<br>
+ * Events are enabled by default once the listener is on, use JFR settings to switch them off individually, disabled events are not committed.
+ * <p>
+ * Define system property to enable the listener
+ * 
+ * <pre>
+ * -Ddroolsassert.jfr
+ * </pre>
+ * 
+ * Then record as usual, for example
+ * 
+ * <pre>
+ * -XX:StartFlightRecording=filename=target/droolsassert.jfr
+ * </pre>
+ */
+public class FlightRecorderListener extends DefaultAgendaEventListener implements DroolsassertListener, RuleRuntimeEventListener {
+	
+	private static String systemProperty = getProperty("droolsassert.jfr");
+	
+	@Name("org.droolsassert.MatchFired")
+	@Label("Rule Fired")
+	@Description("Rule consequence execution")
+	@Category({ "Drools", "Rules" })
+	static class MatchFiredEvent extends Event {
+		@Label("Rule")
+		String rule;
+		@Label("Package")
+		String rulePackage;
+		@Label("Scenario")
+		String scenario;
+	}
+	
+	@Name("org.droolsassert.FactOperation")
+	@Label("Fact Operation")
+	@Description("Fact inserted, updated or deleted")
+	@Category({ "Drools", "Facts" })
+	static class FactOperationEvent extends Event {
+		@Label("Operation")
+		String operation;
+		@Label("Fact Class")
+		Class<?> factClass;
+		@Label("Entry Point")
+		String entryPoint;
+		@Label("Scenario")
+		String scenario;
+	}
+	
+	@Name("org.droolsassert.FireAllRules")
+	@Label("Fire All Rules")
+	@Description("Rules fired in one batch")
+	@Category({ "Drools", "Rules" })
+	static class FireAllRulesEvent extends Event {
+		@Label("Fired Rules")
+		int firedRules;
+		@Label("Scenario")
+		String scenario;
+	}
+	
+	private static final Leap<MatchFiredEvent> dropped = (event, start) -> {
+	};
+	
+	private final MatchStack<MatchFiredEvent> matches = new MatchStack<>();
+	private final Leap<MatchFiredEvent> completed = (event, start) -> commit(event);
+	private FireAllRulesEvent fireAllRulesEvent;
+	private String scenario;
+	
+	@Override
+	public boolean enabled() {
+		return systemProperty != null && !"false".equals(systemProperty) && FlightRecorder.isAvailable();
+	}
+	
+	@Override
+	public void beforeScenario(String test, String scenario) {
+		this.scenario = test + "#" + scenario;
+	}
+	
+	/**
+	 * Match events left by the consequences which threw an exception are dropped
+	 */
+	@Override
+	public void beforeFireAllRules() {
+		matches.clear(dropped);
+		FireAllRulesEvent event = new FireAllRulesEvent();
+		if (!event.isEnabled())
+			return;
+		event.begin();
+		fireAllRulesEvent = event;
+	}
+	
+	@Override
+	public void afterFireAllRules(int firedRules) {
+		FireAllRulesEvent event = fireAllRulesEvent;
+		if (event == null)
+			return;
+		fireAllRulesEvent = null;
+		event.end();
+		if (event.shouldCommit()) {
+			event.firedRules = firedRules;
+			event.scenario = scenario;
+			event.commit();
+		}
+	}
+	
+	@Override
+	public void beforeMatchFired(BeforeMatchFiredEvent event) {
+		MatchFiredEvent jfrEvent = new MatchFiredEvent();
+		if (!jfrEvent.isEnabled())
+			return;
+		Match match = event.getMatch();
+		jfrEvent.rule = match.getRule().getName();
+		jfrEvent.rulePackage = match.getRule().getPackageName();
+		matches.push(match, event.getKieRuntime(), jfrEvent, 0, dropped);
+		jfrEvent.begin();
+	}
+	
+	/**
+	 * Events left by the consequences which threw an exception are dropped when outer match completes or the session fires the next match
+	 */
+	@Override
+	public void afterMatchFired(AfterMatchFiredEvent event) {
+		matches.pop(event.getMatch(), completed, dropped);
+	}
+	
+	private void commit(MatchFiredEvent jfrEvent) {
+		jfrEvent.end();
+		if (jfrEvent.shouldCommit()) {
+			jfrEvent.scenario = scenario;
+			jfrEvent.commit();
+		}
+	}
+	
+	@Override
+	public void objectInserted(ObjectInsertedEvent event) {
+		factOperation("insert", event.getObject(), event.getFactHandle());
+	}
+	
+	@Override
+	public void objectUpdated(ObjectUpdatedEvent event) {
+		factOperation("update", event.getObject(), event.getFactHandle());
+	}
+	
+	@Override
+	public void objectDeleted(ObjectDeletedEvent event) {
+		factOperation("delete", event.getOldObject(), event.getFactHandle());
+	}
+	
+	protected void factOperation(String operation, Object fact, FactHandle factHandle) {
+		FactOperationEvent event = new FactOperationEvent();
+		if (!event.shouldCommit())
+			return;
+		event.operation = operation;
+		event.factClass = fact.getClass();
+		event.entryPoint = ((InternalFactHandle) factHandle).getEntryPointName();
+		event.scenario = scenario;
+		event.commit();
+	}
+}
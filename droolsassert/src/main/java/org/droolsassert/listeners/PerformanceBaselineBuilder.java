@@ -0,0 +1,250 @@
+package org.droolsassert.listeners;
+
+import static java.io.File.pathSeparator;
+import static java.lang.Double.parseDouble;
+import static java.lang.Integer.parseInt;
+import static java.lang.Math.abs;
+import static java.lang.Math.sqrt;
+import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
+import static java.lang.System.getProperty;
+import static java.lang.System.lineSeparator;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.util.Arrays.stream;
+import static java.util.Locale.ROOT;
+import static org.apache.commons.io.FileUtils.forceMkdirParent;
+import static org.apache.commons.lang3.StringUtils.EMPTY;
+import static org.apache.commons.lang3.StringUtils.defaultIfEmpty;
+import static org.droolsassert.DroolsAssertUtils.LazyWorkDirectory.workDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.droolsassert.DroolsAssert;
+import org.droolsassert.DroolsAssertException;
+import org.droolsassert.DroolsAssertUtils.LazyReentrantFileLockFactory;
+import org.droolsassert.util.ReentrantFileLock;
+import org.droolsassert.util.Stat;
+
+/**
+ * Persists rules performance statistic of every test into append-only baseline file and compares it with the previous runs.<br>
+ * Baseline line is
+ *
+ * <pre>
+ * run	test#scenario	rule	count	avg_ms	p50_ms	p90_ms	p99_ms	total_ms
+ * </pre>
+ *
+ * Rule average, p99 and total time are flagged in the report when they moved by more than {@code minChange} (relative) and more than {@code zScore} standard
+ * deviations of the values in the last {@code history} runs of the same scenario. At least 3 previous runs are required.<br>
+ * Baseline file is compacted to the last {@code history} runs of every scenario and rule when it is loaded.
+ * <p>
+ * Define system property to enable performance baseline
+ *
+ * <pre>
+ * -Ddroolsassert.performanceBaseline[=&lt;file_path&gt;[&lt;path_separator&gt;&lt;report_file_path&gt;]]
+ * </pre>
+ *
+ * <b>file_path</b> - baseline file, default
+ *
+ * <pre>
+ * target/droolsassert/performanceBaseline.tsv
+ * </pre>
+ *
+ * <b>report_file_path</b> - regressions report, default
+ *
+ * <pre>
+ * ${file_path}.report.txt
+ * </pre>
+ *
+ * Margins
+ *
+ * <pre>
+ * -Ddroolsassert.performanceBaseline.minChange=0.2
+ * -Ddroolsassert.performanceBaseline.zScore=3
+ * -Ddroolsassert.performanceBaseline.history=20
+ * </pre>
+ */
+public class PerformanceBaselineBuilder implements DroolsassertListener {
+	
+	private static final int MIN_HISTORY = 3;
+	private static final String RUN = Long.toString(currentTimeMillis(), 36) + "-" + ProcessHandle.current().pid();
+	private static final int SCENARIO = 1;
+	private static final int RULE = 2;
+	private static final int AVG = 4;
+	private static final int P99 = 7;
+	private static final int TOTAL = 8;
+	private static final int COLUMNS = 9;
+	
+	private static class LazyBaselineLock {
+		private static final ReentrantFileLock instance = LazyReentrantFileLockFactory.instance.newLock(PerformanceBaselineBuilder.class.getName());
+	}
+	
+	/**
+	 * Previous runs, loaded once before this VM appends anything
+	 */
+	private static class LazyBaseline {
+		private static final Baseline instance = new Baseline(history);
+		private static final File baselineFile;
+		private static final File reportFile;
+		static {
+			String[] params = (systemProperty == null || "true".equals(systemProperty) ? EMPTY : systemProperty).split(pathSeparator);
+			baselineFile = new File(defaultIfEmpty(params[0], Path.of(workDir, "performanceBaseline.tsv").toString()));
+			reportFile = new File(params.length > 1 ? params[1] : baselineFile + ".report.txt");
+			LazyBaselineLock.instance.lock();
+			try {
+				instance.load(baselineFile);
+			} catch (IOException | RuntimeException e) {
+				throw new DroolsAssertException("Cannot read performance baseline " + baselineFile, e);
+			} finally {
+				LazyBaselineLock.instance.unlock();
+			}
+		}
+	}
+	
+	private static String systemProperty = getProperty("droolsassert.performanceBaseline");
+	private static double minChange = parseDouble(getProperty("droolsassert.performanceBaseline.minChange", "0.2"));
+	private static double zScore = parseDouble(getProperty("droolsassert.performanceBaseline.zScore", "3"));
+	private static int history = parseInt(getProperty("droolsassert.performanceBaseline.history", "20"));
+	
+	private DroolsAssert droolsassert;
+	private String scenario;
+	
+	public PerformanceBaselineBuilder(DroolsAssert droolsassert) {
+		this.droolsassert = droolsassert;
+	}
+	
+	@Override
+	public boolean enabled() {
+		return systemProperty != null;
+	}
+	
+	@Override
+	public void beforeScenario(String test, String scenario) {
+		this.scenario = (test + "#" + scenario).replace('\t', ' ');
+	}
+	
+	@Override
+	public void afterScenario() {
+		StringBuilder baseline = new StringBuilder();
+		StringBuilder report = new StringBuilder();
+		for (Entry<String, Stat> e : droolsassert.getRulesChrono().getPerfStat().entrySet()) {
+			Stat stat = e.getValue();
+			if (stat.getLeapsCount() == 0)
+				continue;
+			String line = line(RUN, scenario, e.getKey(), stat);
+			baseline.append(line).append(lineSeparator());
+			LazyBaseline.instance.compare(report, line.split("\t"), minChange, zScore);
+		}
+		
+		LazyBaselineLock.instance.lock();
+		try {
+			append(LazyBaseline.baselineFile, baseline);
+			append(LazyBaseline.reportFile, report);
+		} finally {
+			LazyBaselineLock.instance.unlock();
+		}
+	}
+	
+	static String line(String run, String scenario, String rule, Stat stat) {
+		return format(ROOT, "%s\t%s\t%s\t%d\t%.4f\t%.4f\t%.4f\t%.4f\t%.4f",
+				run, scenario, rule.replace('\t', ' '), stat.getLeapsCount(), stat.getAvgTimeMs(), stat.getP50TimeMs(), stat.getP90TimeMs(), stat.getP99TimeMs(), stat.getTotalTimeMs());
+	}
+	
+	private void append(File file, CharSequence content) {
+		if (content.length() == 0)
+			return;
+		try {
+			forceMkdirParent(file);
+			try (Writer writer = Files.newBufferedWriter(file.toPath(), UTF_8, CREATE, APPEND)) {
+				writer.append(content);
+			}
+		} catch (IOException e) {
+			throw new DroolsAssertException("Cannot write performance baseline " + file, e);
+		}
+	}
+	
+	/**
+	 * Last {@code history} runs of every scenario and rule
+	 */
+	static final class Baseline {
+		private final Map<String, ArrayDeque<String[]>> runs = new LinkedHashMap<>();
+		private final int history;
+		
+		Baseline(int history) {
+			this.history = history;
+		}
+		
+		/**
+		 * Read the runs, rewrite the file if older runs were dropped. Must be called under the baseline lock
+		 */
+		void load(File file) throws IOException {
+			if (!file.exists())
+				return;
+			int lines = 0;
+			try (BufferedReader reader = Files.newBufferedReader(file.toPath(), UTF_8)) {
+				for (String line = reader.readLine(); line != null; line = reader.readLine(), lines++)
+					add(line.split("\t"));
+			}
+			if (lines > runs.values().stream().mapToInt(ArrayDeque::size).sum())
+				compact(file);
+		}
+		
+		void add(String[] columns) {
+			if (columns.length < COLUMNS)
+				return;
+			ArrayDeque<String[]> previous = runs.computeIfAbsent(columns[SCENARIO] + "\t" + columns[RULE], k -> new ArrayDeque<>());
+			previous.addLast(columns);
+			if (previous.size() > history)
+				previous.removeFirst();
+		}
+		
+		private void compact(File file) throws IOException {
+			File tmp = new File(file.getPath() + ".tmp");
+			try (Writer writer = Files.newBufferedWriter(tmp.toPath(), UTF_8)) {
+				for (ArrayDeque<String[]> previous : runs.values()) {
+					for (String[] columns : previous)
+						writer.append(String.join("\t", columns)).append(lineSeparator());
+				}
+			}
+			Files.move(tmp.toPath(), file.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+		}
+		
+		/**
+		 * Report average, p99 and total time of the run which moved away from the previous runs
+		 */
+		void compare(StringBuilder report, String[] columns, double minChange, double zScore) {
+			ArrayDeque<String[]> previous = runs.get(columns[SCENARIO] + "\t" + columns[RULE]);
+			if (previous == null || previous.size() < MIN_HISTORY)
+				return;
+			compare(report, columns, previous, AVG, "avg", minChange, zScore);
+			compare(report, columns, previous, P99, "p99", minChange, zScore);
+			compare(report, columns, previous, TOTAL, "total", minChange, zScore);
+		}
+		
+		private static void compare(StringBuilder report, String[] columns, ArrayDeque<String[]> previous, int column, String measure, double minChange, double zScore) {
+			double[] values = previous.stream().mapToDouble(c -> parseDouble(c[column])).toArray();
+			double mean = stream(values).average().getAsDouble();
+			if (mean <= 0)
+				return;
+			double variance = stream(values).map(v -> (v - mean) * (v - mean)).sum() / (values.length - 1);
+			double actual = parseDouble(columns[column]);
+			double change = abs(actual - mean);
+			if (change <= minChange * mean || change <= zScore * sqrt(variance))
+				return;
+			report.append(format(ROOT, "%s\t%s %s: %s %.4f ms vs baseline %.4f +/- %.4f ms over %d runs (%+.0f%%)%n",
+					columns[0], columns[SCENARIO], columns[RULE], measure, actual, mean, sqrt(variance), values.length, 100 * (actual - mean) / mean));
+		}
+	}
+}
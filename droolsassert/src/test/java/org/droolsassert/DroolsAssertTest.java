@@ -2,16 +2,22 @@ package org.droolsassert;
 
 import static java.util.Arrays.asList;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.droolsassert.jbehave.DroolsSessionProxy.newDroolsSessionProxy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 import org.drools.base.definitions.rule.impl.RuleImpl;
+import org.droolsassert.jbehave.DroolsSessionProxy;
+import org.droolsassert.listeners.DroolsassertListener;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.kie.api.runtime.rule.FactHandle;
@@ -69,6 +75,51 @@ public class DroolsAssertTest {
 		assertEquals(2, drools.getObjects(AtomicLong.class).size());
 	}
 	
+	@Test
+	@TestRules(expected = "atomic int rule")
+	public void testOnlyRequestedFiresAreReported() {
+		AtomicInteger fires = new AtomicInteger();
+		drools.getListeners().add(new DroolsassertListener() {
+			@Override
+			public boolean enabled() {
+				return true;
+			}
+			
+			@Override
+			public void beforeFireAllRules() {
+				fires.incrementAndGet();
+			}
+		});
+		
+		drools.insertAndFire(new AtomicInteger());
+		drools.assertFactsCount(1);
+		drools.getObjects();
+		drools.advanceTime(1, SECONDS);
+		assertEquals(1, fires.get());
+	}
+	
+	@Test
+	@TestRules(expected = "atomic int rule")
+	@PerformanceBudget(rules = "atomic*", maxAvgTimeMs = 10_000, maxFireAllRulesTimeMs = 60_000)
+	public void testPerformanceBudget() {
+		drools.insertAndFire(new AtomicInteger());
+	}
+	
+	@Test
+	public void testKieBaseIsSharedByContent() throws IOException {
+		DroolsSession first = newDroolsSessionProxy(new DroolsSessionProxy() {
+			{
+				resources = new String[] { "classpath*:/org/droolsassert/rules.drl" };
+			}
+		});
+		DroolsSession second = newDroolsSessionProxy(new DroolsSessionProxy() {
+			{
+				resources = new String[] { "classpath*:/org/droolsassert/rules.drl" };
+			}
+		});
+		assertSame(drools.kieBase(first), drools.kieBase(second));
+	}
+	
 	@Test
 	@TestRules(expected = {})
 	public void testNoRulesWereActivated() {
@@ -108,6 +159,30 @@ public class DroolsAssertTest {
 		assertEquals(2, drools.getFactHandles((Object o) -> o instanceof AtomicLong).size());
 	}
 	
+	@Test
+	public void testGetObjectsBySuperclass() {
+		AtomicInteger atomicInteger = new AtomicInteger();
+		AtomicLong atomicLong = new AtomicLong();
+		drools.insertAndFire(atomicInteger);
+		drools.insertAndFireAt("entrypoint", atomicLong);
+		assertEquals(2, drools.getObjects(Number.class).size());
+		assertEquals(1, drools.getObjects(Number.class, n -> n instanceof AtomicInteger).size());
+		
+		drools.delete(atomicInteger);
+		assertEquals(asList(atomicLong), drools.getObjects(Number.class));
+		drools.assertDeleted(atomicInteger);
+		drools.assertExist(atomicLong);
+	}
+	
+	@Test
+	@TestRules(expectedCount = { "10", "atomic int rule", "3", "atomic long rule" })
+	public void testInsertAllAndFire() {
+		assertEquals(10, drools.insertAllAndFire(Stream.generate(AtomicInteger::new).limit(10), 3, 1, SECONDS));
+		assertEquals(10, drools.getObjects(AtomicInteger.class).size());
+		assertEquals(3, drools.insertAll(asList(new AtomicLong(), new AtomicLong(), new AtomicLong())));
+		assertEquals(3, drools.getObjects(AtomicLong.class).size());
+	}
+	
 	@Test
 	public void testUpdate() {
 		AtomicInteger atomicInteger = new AtomicInteger(8);
@@ -151,6 +226,18 @@ public class DroolsAssertTest {
 		assertEquals(0, drools.getFactHandles(AtomicLong.class).size());
 	}
 	
+	@Test
+	public void testDeleteFromAllEntryPoints() {
+		AtomicLong atomicLong = new AtomicLong();
+		drools.insertAndFire(atomicLong);
+		drools.insertAndFireAt("entrypoint", atomicLong);
+		assertEquals(2, drools.getFactHandles(AtomicLong.class).size());
+		drools.update(atomicLong);
+		drools.delete(atomicLong);
+		drools.assertDeleted(atomicLong);
+		drools.assertAllDeleted();
+	}
+	
 	@Test
 	public void testActivationMeta() {
 		drools.insertAndFire(new AtomicInteger());
@@ -160,6 +247,20 @@ public class DroolsAssertTest {
 		assertEquals(0, rule.getSalience().getValue());
 	}
 	
+	@Test
+	public void testActivationsAreWritable() {
+		drools.insertAndFire(new AtomicInteger());
+		drools.activations.put("atomic int rule", 3);
+		drools.activations.put("atomic long rule", 1);
+		drools.assertAllActivationsCount(3, "atomic int rule", 1, "atomic long rule");
+		drools.assertActivatedCount(3, "atomic int rule", 1, "atomic long rule");
+		
+		drools.activations.remove("atomic long rule");
+		drools.assertAllActivationsCount(3, "atomic int rule");
+		drools.assertActivated();
+		assertThrows(DroolsAssertException.class, () -> drools.activations.put("no such rule", 1));
+	}
+	
 	@Test
 	public void testToString() {
 		drools.insertAndFire("string");
@@ -0,0 +1,24 @@
+package org.droolsassert;
+
+import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Same scenarios as {@link ComplexEventProcessingTest} with the clock moved straight to the scheduled jobs
+ */
+@DroolsSession(value = "org/droolsassert/complexEventProcessing.drl", eventDrivenTime = true)
+public class EventDrivenTimeTest extends ComplexEventProcessingTest {
+	
+	@Test
+	@TestRules(expected = {
+			"input call",
+			"drop the call if caller is talking more than permitted time",
+			"call in progress dropped" })
+	public void testAdvanceTimeForYear() {
+		drools.insertAndFire(new Dialing("11111", "22222"));
+		drools.advanceTime(SECONDS, DAYS.toSeconds(365));
+		drools.assertAllDeleted();
+	}
+}
@@ -0,0 +1,35 @@
+package org.droolsassert;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+@DroolsSession(source = "import java.util.concurrent.atomic.AtomicLong\n"
+		+ "declare AtomicLong @role(event) @expires(1m) end")
+public class ExpiredEventTest {
+	
+	@RegisterExtension
+	public DroolsAssert drools = new DroolsAssert();
+	
+	@Test
+	public void testExpiredEventIsDeleted() {
+		AtomicLong event = new AtomicLong();
+		AtomicInteger fact = new AtomicInteger();
+		drools.insertAndFire(event, fact);
+		drools.assertExist(event, fact);
+		
+		drools.advanceTime(2, MINUTES);
+		drools.assertDeleted(event);
+		drools.assertExist(fact);
+		assertTrue(drools.getObjects(AtomicLong.class).isEmpty());
+		assertNull(drools.getFactHandle(event));
+		assertEquals(1, drools.getObjects().size());
+	}
+}
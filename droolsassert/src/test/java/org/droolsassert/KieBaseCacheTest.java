@@ -0,0 +1,135 @@
+package org.droolsassert;
+
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.kie.api.conf.EventProcessingOption.STREAM;
+import static org.kie.api.io.ResourceType.DRL;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.drools.kiesession.rulebase.InternalKnowledgeBase;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kie.api.KieBase;
+import org.kie.api.KieBaseConfiguration;
+import org.kie.api.KieServices;
+import org.kie.api.definition.type.FactType;
+import org.kie.api.runtime.KieSession;
+import org.kie.internal.utils.KieHelper;
+
+public class KieBaseCacheTest {
+	
+	private static final String[] SOURCE = { "import java.util.concurrent.atomic.AtomicInteger\n"
+			+ "rule 'atomic int rule'\n"
+			+ "when\n"
+			+ "    $atomicInteger: AtomicInteger()\n"
+			+ "then\n"
+			+ "    $atomicInteger.incrementAndGet();\n"
+			+ "end" };
+	
+	@TempDir
+	public File cacheDirectory;
+	
+	private KieBaseConfiguration configuration = KieServices.Factory.get().newKieBaseConfiguration();
+	private AtomicInteger builds = new AtomicInteger();
+	
+	@Test
+	public void testKieBaseSurvivesSerialization() throws IOException {
+		KieBaseCache cache = new KieBaseCache(cacheDirectory);
+		String key = cache.key(emptyList(), SOURCE, new Properties(), new Properties());
+		
+		KieBase built = cache.computeIfAbsent(key, configuration, this::build, false);
+		KieBase cached = cache.computeIfAbsent(key, configuration, this::build, false);
+		assertEquals(1, builds.get());
+		assertNotSame(built, cached);
+		assertTrue(new File(cacheDirectory, key + ".kbase").exists());
+		
+		KieSession session = cached.newKieSession();
+		AtomicInteger fact = new AtomicInteger();
+		session.insert(fact);
+		assertEquals(1, session.fireAllRules());
+		assertEquals(1, fact.get());
+		session.dispose();
+	}
+	
+	@Test
+	public void testUnreadableEntryIsRebuilt() throws IOException {
+		KieBaseCache cache = new KieBaseCache(cacheDirectory);
+		String key = cache.key(emptyList(), SOURCE, new Properties(), new Properties());
+		Files.write(new File(cacheDirectory, key + ".kbase").toPath(), new byte[] { 1, 2, 3 });
+		
+		cache.computeIfAbsent(key, configuration, this::build, false);
+		cache.computeIfAbsent(key, configuration, this::build, false);
+		assertEquals(1, builds.get());
+	}
+	
+	@Test
+	public void testKeyDependsOnContent() throws IOException {
+		KieBaseCache cache = new KieBaseCache(cacheDirectory);
+		Properties properties = new Properties();
+		String key = cache.key(emptyList(), SOURCE, properties, new Properties());
+		assertEquals(key, cache.key(emptyList(), SOURCE, new Properties(), new Properties()));
+		
+		properties.setProperty("drools.dialect.default", "mvel");
+		assertNotEquals(key, cache.key(emptyList(), SOURCE, properties, new Properties()));
+		assertNotEquals(key, cache.key(emptyList(), new String[] { SOURCE[0] + "\n" }, new Properties(), new Properties()));
+	}
+	
+	@Test
+	public void testDeclaredTypesSurviveSerialization() throws Exception {
+		KieBaseCache cache = new KieBaseCache(cacheDirectory);
+		String[] source = { "declare Tick @role(event) value: int end\n"
+				+ "rule 'tick rule'\n"
+				+ "when\n"
+				+ "    Tick(value > 0)\n"
+				+ "then\n"
+				+ "end" };
+		String key = cache.key(emptyList(), source, new Properties(), new Properties());
+		KieBaseConfiguration stream = KieServices.Factory.get().newKieBaseConfiguration();
+		stream.setOption(STREAM);
+		
+		cache.computeIfAbsent(key, stream, () -> new KieHelper().addContent(source[0], DRL).build(stream), false);
+		KieBase cached = cache.computeIfAbsent(key, stream, this::build, false);
+		assertEquals(0, builds.get());
+		
+		FactType tick = cached.getFactType("defaultpkg", "Tick");
+		assertEquals(STREAM, ((InternalKnowledgeBase) cached).getRuleBaseConfiguration().getEventProcessingMode());
+		
+		KieSession session = cached.newKieSession();
+		Object fact = tick.newInstance();
+		tick.set(fact, "value", 1);
+		session.insert(fact);
+		assertEquals(1, session.fireAllRules());
+		session.dispose();
+	}
+	
+	@Test
+	public void testKeyDependsOnClassesOfDeclaredPackage() throws IOException {
+		KieBaseCache cache = new KieBaseCache(cacheDirectory);
+		String[] source = { "package org.droolsassert\n" + SOURCE[0] };
+		String key = cache.key(emptyList(), source, new Properties(), new Properties());
+		assertEquals(key, cache.key(emptyList(), source, new Properties(), new Properties()));
+		
+		File classFile = new File(getClass().getResource(getClass().getSimpleName() + ".class").getFile());
+		long modified = classFile.lastModified();
+		try {
+			classFile.setLastModified(modified + 10_000);
+			assertNotEquals(key, cache.key(emptyList(), source, new Properties(), new Properties()));
+			assertEquals(cache.key(emptyList(), SOURCE, new Properties(), new Properties()), cache.key(emptyList(), SOURCE, new Properties(), new Properties()));
+		} finally {
+			classFile.setLastModified(modified);
+		}
+	}
+	
+	private KieBase build() {
+		builds.incrementAndGet();
+		return new KieHelper().addContent(SOURCE[0], DRL).build();
+	}
+}
@@ -0,0 +1,57 @@
+package org.droolsassert;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+@DroolsSession(resources = "classpath*:/org/droolsassert/rules.drl", ignoreRules = { "before", "after" })
+public class PerformanceBudgetTest {
+	
+	/**
+	 * Tests named {@code testExceeded*} are expected to fail the budget check when the test completes
+	 */
+	@RegisterExtension
+	public DroolsAssert drools = new DroolsAssert() {
+		@Override
+		public void afterEach(ExtensionContext context) throws Exception {
+			if (context.getRequiredTestMethod().getName().startsWith("testExceeded"))
+				assertThrows(AssertionError.class, () -> super.afterEach(context));
+			else
+				super.afterEach(context);
+		}
+	};
+	
+	@Test
+	@TestRules(expected = "atomic int rule")
+	@PerformanceBudget(maxFireAllRulesTimeMs = Double.MIN_VALUE)
+	public void testExceededFireAllRulesTime() {
+		drools.insertAndFire(new AtomicInteger());
+	}
+	
+	@Test
+	@TestRules(expected = "atomic int rule")
+	@PerformanceBudget(rules = "atomic*", maxTimeMs = Double.MIN_VALUE)
+	public void testExceededRuleTime() {
+		drools.insertAndFire(new AtomicInteger());
+	}
+	
+	@Test
+	@TestRules(expected = "atomic int rule")
+	public void testStatisticIsPerSession() {
+		DroolsAssert other = new DroolsAssert();
+		other.init(getClass().getAnnotation(DroolsSession.class), null);
+		try {
+			other.insertAndFire(new AtomicInteger());
+			drools.insertAndFire(new AtomicInteger());
+			assertEquals(1, drools.getRulesChrono().getPerfStat().get("atomic int rule").getLeapsCount());
+			assertEquals(1, other.getRulesChrono().getPerfStat().get("atomic int rule").getLeapsCount());
+		} finally {
+			other.destroy();
+		}
+	}
+}
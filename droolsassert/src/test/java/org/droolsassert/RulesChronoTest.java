@@ -4,10 +4,16 @@ import static java.awt.Color.black;
 import static java.awt.Color.lightGray;
 import static java.lang.String.format;
 import static org.droolsassert.util.ChartUtils.pngChart;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 
+import org.droolsassert.util.Stat;
 import org.jfree.data.time.TimeSeries;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -46,6 +52,53 @@ public class RulesChronoTest {
 				.forEach(e -> pngChart(format("charts/%s.png", e.getKey()), 1024, 500, e.getValue(), black, rulesMaxChart.get(e.getKey()), lightGray, rulesMinChart.get(e.getKey()), lightGray));
 	}
 	
+	@Test
+	@TestRules(expected = "sleep method")
+	public void testThresholdsPerInstance() {
+		RulesChronoChartRecorder rulesChrono = new RulesChronoChartRecorder(100).withSessionPrefix("testThresholdsPerInstance").withMaxThreshold(150).withDormantMode();
+		new RulesChronoChartRecorder(100).withMaxThreshold(10);
+		drools.setRulesChrono(rulesChrono);
+		
+		drools.insertAndFire(60, 70);
+		rulesChrono.recordTimeSeries();
+		assertFalse(rulesChrono.isRecordingStarted());
+		
+		drools.insertAndFire(200);
+		rulesChrono.recordTimeSeries();
+		assertTrue(rulesChrono.isRecordingStarted());
+		assertEquals(Set.of("sleep method"), rulesChrono.getRulesMaxChart().keySet());
+	}
+	
+	@Test
+	@TestRules(expected = "sleep method")
+	public void testDormantRuleIsRecordedAfterRollover() {
+		RulesChronoChartRecorder rulesChrono = new RulesChronoChartRecorder(100).withSessionPrefix("testDormantRuleIsRecordedAfterRollover").withMaxThreshold(40).withDormantMode();
+		drools.setRulesChrono(rulesChrono);
+		
+		drools.insertAndFire(50);
+		for (int i = 0; i < 5; i++)
+			rulesChrono.recordTimeSeries();
+		assertFalse(rulesChrono.isRecordingStarted());
+		
+		drools.insertAndFire(30, 31, 32);
+		rulesChrono.recordTimeSeries();
+		assertTrue(rulesChrono.isRecordingStarted());
+		assertEquals(Set.of("sleep method"), rulesChrono.getRulesMaxChart().keySet());
+	}
+	
+	@Test
+	@TestRules(expected = { "failing method", "sleep method" })
+	public void testFailedLeap() {
+		assertThrows(RuntimeException.class, () -> drools.insertAndFire("fail"));
+		drools.insertAndFire(10);
+		
+		Map<String, Stat> perfStat = drools.getRulesChrono().getPerfStat();
+		assertEquals(0, perfStat.get("failing method").getLeapsCount());
+		assertEquals(1, perfStat.get("failing method").getFailedLeapsCount());
+		assertEquals(1, perfStat.get("sleep method").getLeapsCount());
+		assertEquals(0, perfStat.get("sleep method").getFailedLeapsCount());
+	}
+	
 	public int randomFunction(int i) {
 		return new Random().nextInt(i) * 10;
 	}
@@ -0,0 +1,72 @@
+package org.droolsassert;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.kie.api.io.ResourceType.DRL;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+
+import org.drools.core.common.InternalWorkingMemory;
+import org.junit.jupiter.api.Test;
+import org.kie.api.runtime.Globals;
+import org.kie.api.runtime.KieSession;
+import org.kie.internal.utils.KieHelper;
+
+/**
+ * Same scenarios as {@link ComplexEventProcessingTest} running on the reused session
+ */
+@DroolsSession(value = "org/droolsassert/complexEventProcessing.drl", sessionPool = 1)
+public class SessionPoolTest extends ComplexEventProcessingTest {
+	
+	@Test
+	public void testSessionIsReset() {
+		assertTrue(drools.getObjects().isEmpty());
+		assertEquals(LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli(), drools.getSession().getSessionClock().getCurrentTime());
+		
+		drools.insertAndFire(new Dialing("11111", "22222"));
+		assertEquals(1, drools.getObjects().size());
+	}
+	
+	@Test
+	public void testCloseDisposesSessions() {
+		SessionPool sessionPool = new SessionPool(1);
+		KieSession idle = pooledSession();
+		KieSession released = pooledSession();
+		
+		sessionPool.release(idle);
+		verify(idle, never()).dispose();
+		sessionPool.close();
+		verify(idle).dispose();
+		
+		sessionPool.release(released);
+		verify(released).dispose();
+	}
+	
+	@Test
+	public void testGlobalsAreCleared() {
+		KieSession session = new KieHelper().addContent("package org.droolsassert\nglobal java.util.List list", DRL).build().newKieSession();
+		session.setGlobal("list", new ArrayList<>());
+		SessionPool sessionPool = new SessionPool(1);
+		sessionPool.release(session);
+		
+		KieSession reused = sessionPool.acquire(() -> null);
+		assertSame(session, reused);
+		assertNull(reused.getGlobal("list"));
+		reused.dispose();
+	}
+	
+	private KieSession pooledSession() {
+		KieSession session = mock(KieSession.class, withSettings().extraInterfaces(InternalWorkingMemory.class));
+		when(session.getGlobals()).thenReturn(mock(Globals.class));
+		return session;
+	}
+}
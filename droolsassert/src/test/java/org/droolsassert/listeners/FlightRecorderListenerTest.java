@@ -0,0 +1,82 @@
+package org.droolsassert.listeners;
+
+import static java.nio.file.Files.createTempFile;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.kie.api.definition.rule.Rule;
+import org.kie.api.event.rule.AfterMatchFiredEvent;
+import org.kie.api.event.rule.BeforeMatchFiredEvent;
+import org.kie.api.runtime.rule.Match;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class FlightRecorderListenerTest {
+	
+	@Test
+	public void testMatchOfFailedConsequenceIsDropped() throws IOException {
+		FlightRecorderListener listener = new FlightRecorderListener();
+		Match failing = match("failing rule");
+		Match fired = match("fired rule");
+		
+		Path file = createTempFile("droolsassert", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("org.droolsassert.MatchFired");
+			recording.enable("org.droolsassert.FireAllRules");
+			recording.start();
+			
+			listener.beforeScenario("test", "scenario");
+			listener.beforeFireAllRules();
+			listener.beforeMatchFired(beforeEvent(failing));
+			listener.beforeFireAllRules();
+			listener.beforeMatchFired(beforeEvent(fired));
+			listener.afterMatchFired(afterEvent(fired));
+			listener.afterFireAllRules(1);
+			
+			recording.stop();
+			recording.dump(file);
+		}
+		
+		List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+		List<String> firedRules = events.stream()
+				.filter(e -> e.getEventType().getName().equals("org.droolsassert.MatchFired"))
+				.map(e -> e.getString("rule"))
+				.collect(toList());
+		assertEquals(List.of("fired rule"), firedRules);
+		List<RecordedEvent> fireAllRules = events.stream()
+				.filter(e -> e.getEventType().getName().equals("org.droolsassert.FireAllRules"))
+				.collect(toList());
+		assertEquals(1, fireAllRules.size());
+		assertEquals(1, fireAllRules.get(0).getInt("firedRules"));
+		assertEquals("test#scenario", fireAllRules.get(0).getString("scenario"));
+	}
+	
+	private static Match match(String ruleName) {
+		Rule rule = mock(Rule.class);
+		when(rule.getName()).thenReturn(ruleName);
+		Match match = mock(Match.class);
+		when(match.getRule()).thenReturn(rule);
+		return match;
+	}
+	
+	private static BeforeMatchFiredEvent beforeEvent(Match match) {
+		BeforeMatchFiredEvent event = mock(BeforeMatchFiredEvent.class);
+		when(event.getMatch()).thenReturn(match);
+		return event;
+	}
+	
+	private static AfterMatchFiredEvent afterEvent(Match match) {
+		AfterMatchFiredEvent event = mock(AfterMatchFiredEvent.class);
+		when(event.getMatch()).thenReturn(match);
+		return event;
+	}
+}
@@ -0,0 +1,139 @@
+package org.droolsassert.listeners;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Locale.ROOT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.droolsassert.listeners.PerformanceBaselineBuilder.Baseline;
+import org.droolsassert.util.PerfStat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PerformanceBaselineBuilderTest {
+	
+	@TempDir
+	public File directory;
+	
+	@Test
+	public void testLineFormat() {
+		PerfStat perfStat = new PerfStat("PerformanceBaselineBuilderTest", "line format");
+		perfStat.record(1_000_000);
+		perfStat.record(3_000_000);
+		String[] columns = PerformanceBaselineBuilder.line("run", "Test#scenario", "rule\tname", perfStat.getStat()).split("\t");
+		
+		assertEquals(9, columns.length);
+		assertEquals("run", columns[0]);
+		assertEquals("Test#scenario", columns[1]);
+		assertEquals("rule name", columns[2]);
+		assertEquals("2", columns[3]);
+		assertEquals("2.0000", columns[4]);
+		assertEquals("4.0000", columns[8]);
+	}
+	
+	@Test
+	public void testRegressionIsReported() {
+		Baseline baseline = baseline(20, 1.0, 1.1, 0.9, 1.0, 1.0);
+		
+		StringBuilder report = new StringBuilder();
+		baseline.compare(report, row("current", 2.0, 2.0, 20.0), 0.2, 3);
+		assertTrue(report.toString().contains("rule: avg 2.0000 ms vs baseline 1.0000"), report.toString());
+		
+		report.setLength(0);
+		baseline.compare(report, row("current", 1.05, 1.05, 10.5), 0.2, 3);
+		assertEquals("", report.toString());
+	}
+	
+	@Test
+	public void testChangeWithinDeviationIsNotReported() {
+		Baseline baseline = baseline(20, 1.0, 2.0, 0.5, 1.5, 1.0);
+		
+		StringBuilder report = new StringBuilder();
+		baseline.compare(report, row("current", 1.8, 1.8, 18.0), 0.2, 3);
+		assertEquals("", report.toString());
+	}
+	
+	@Test
+	public void testZeroBaselineIsIgnored() {
+		Baseline baseline = baseline(20, 0.0, 0.0, 0.0);
+		
+		StringBuilder report = new StringBuilder();
+		baseline.compare(report, row("current", 1.0, 1.0, 10.0), 0.2, 3);
+		assertEquals("", report.toString());
+	}
+	
+	@Test
+	public void testTotalIsCompared() {
+		Baseline baseline = baseline(20, 1.0, 1.1, 0.9, 1.0, 1.0);
+		
+		StringBuilder report = new StringBuilder();
+		String[] current = row("current", 1.0, 1.0, 10.0);
+		current[8] = "30.0000";
+		baseline.compare(report, current, 0.2, 3);
+		assertTrue(report.toString().contains("rule: total 30.0000 ms"), report.toString());
+		assertFalse(report.toString().contains("avg"), report.toString());
+	}
+	
+	@Test
+	public void testFewRunsAreNotCompared() {
+		Baseline baseline = baseline(20, 1.0, 1.0);
+		
+		StringBuilder report = new StringBuilder();
+		baseline.compare(report, row("current", 5.0, 5.0, 50.0), 0.2, 3);
+		assertEquals("", report.toString());
+	}
+	
+	@Test
+	public void testBaselineIsCompacted() throws IOException {
+		File file = new File(directory, "baseline.tsv");
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			lines.add(String.join("\t", row("run" + i, i, i, 10 * i)));
+			lines.add(String.join("\t", row("run" + i, i, i, 10 * i)).replace("\trule\t", "\tother\t"));
+		}
+		Files.write(file.toPath(), lines, UTF_8);
+		
+		Baseline baseline = new Baseline(3);
+		baseline.load(file);
+		
+		List<String> compacted = Files.readAllLines(file.toPath(), UTF_8);
+		assertEquals(6, compacted.size());
+		assertEquals(lines.subList(14, 20).stream().filter(l -> l.contains("\trule\t")).toList(),
+				compacted.stream().filter(l -> l.contains("\trule\t")).toList());
+		assertFalse(new File(directory, "baseline.tsv.tmp").exists());
+		
+		StringBuilder report = new StringBuilder();
+		baseline.compare(report, row("current", 1.0, 1.0, 10.0), 0.2, 3);
+		assertTrue(report.toString().contains("vs baseline 8.0000 +/- 1.0000 ms over 3 runs"), report.toString());
+	}
+	
+	@Test
+	public void testBaselineWithinHistoryIsNotRewritten() throws IOException {
+		File file = new File(directory, "baseline.tsv");
+		Files.write(file.toPath(), List.of(String.join("\t", row("run0", 1.0, 1.0, 10.0)), String.join("\t", row("run1", 1.0, 1.0, 10.0))), UTF_8);
+		long modified = file.lastModified() - 10_000;
+		file.setLastModified(modified);
+		
+		new Baseline(3).load(file);
+		assertEquals(modified, file.lastModified());
+	}
+	
+	private Baseline baseline(int history, double... avgs) {
+		Baseline baseline = new Baseline(history);
+		for (int i = 0; i < avgs.length; i++)
+			baseline.add(row("run" + i, avgs[i], avgs[i], 10 * avgs[i]));
+		return baseline;
+	}
+	
+	private String[] row(String run, double avg, double p99, double total) {
+		return format(ROOT, "%s\tTest#scenario\trule\t10\t%.4f\t%.4f\t%.4f\t%.4f\t%.4f", run, avg, avg, avg, p99, total).split("\t");
+	}
+}